@@ -0,0 +1,85 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Tester.State の生成、State.moveAndRead、RolloutState の moveAndRead / restoreFrom / rollout
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class SimulatorBenchmark {
+    private static final long SEED = 1;
+    private static final int MOVES = 4096;
+
+    // 右端と左端の間を往復しながら全部めくる方針
+    static final RolloutState.Policy SWEEP = (s, lastCard) -> {
+        int dir = (s.totalDist / (RolloutState.N - 1)) % 2 == 0 ? 1 : -1;
+        int next = s.pos + dir;
+        return next < 0 || RolloutState.N <= next ? s.pos - dir : next;
+    };
+
+    // 隣のカードをめくる動きを中心にしたランダムな移動先
+    int[] moves;
+    Tester.State state;
+    RolloutState root;
+    RolloutState rollout;
+    int next;
+
+    @Setup
+    public void setup() {
+        Tester.XorShift rnd = new Tester.XorShift();
+        rnd.setSeed(SEED * 31 + 7);
+        moves = new int[MOVES];
+        int pos = 0;
+        for (int i = 0; i < moves.length; i++) {
+            pos = Math.max(0, Math.min(Tester.N - 1, pos + rnd.nextInt(5) - 2));
+            moves[i] = pos;
+        }
+        state = new Tester.State(SEED);
+        root = new RolloutState(SEED);
+        rollout = root.fork();
+    }
+
+    // シードを変えながら生成する
+    @Benchmark
+    public long newState() {
+        return new Tester.State(SEED + next++).rnds[0].x;
+    }
+
+    @Benchmark
+    public int stateMoveAndRead() {
+        return state.moveAndRead(moves[next++ & (MOVES - 1)]);
+    }
+
+    @Benchmark
+    public int rolloutMoveAndRead() {
+        return rollout.moveAndRead(moves[next++ & (MOVES - 1)]);
+    }
+
+    @Benchmark
+    public int rolloutRestoreFrom() {
+        rollout.restoreFrom(root);
+        return rollout.pos;
+    }
+
+    // 根の状態から毎回やり直し、移動距離 (10000) を使い切るまで進める
+    @Benchmark
+    public long rolloutSweep() {
+        rollout.restoreFrom(root);
+        rollout.resample(++next);
+        return rollout.rollout(SWEEP);
+    }
+}
@@ -0,0 +1,98 @@
+package bench;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// TestCase / Board / SearchBoard の rotateClockwise、Judge.calcScore (1000 回転)、テストケース生成。
+// 回転は一辺 2 から 20 のランダムな正方形で、盤面は回転するたびに変わるが、回転の手間は盤面の色によらない
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class SimulatorBenchmark {
+    private static final long SEED = 1;
+    private static final int SQUARES = 4096;
+
+    TestCase testcase;
+    // calcScore が testcase.C に書き戻すので、毎回この盤面に戻してから計算する
+    int[][] initial;
+    TestCase.SubSquare[] squares;
+    Judge.Output output;
+    Board board;
+    SearchBoard searchBoard;
+    int next;
+
+    @Setup
+    public void setup() throws Exception {
+        testcase = new TestCase(SEED);
+        initial = new int[testcase.N][];
+        for (int i = 0; i < testcase.N; i++) {
+            initial[i] = testcase.C[i].clone();
+        }
+        TestCase.XorShift rnd = new TestCase.XorShift();
+        rnd.setSeed(SEED * 31 + 7);
+        squares = new TestCase.SubSquare[SQUARES];
+        output = new Judge.Output(new OutputTokenizer(ByteBuffer.allocate(0)), testcase);
+        for (int i = 0; i < SQUARES; i++) {
+            int s = rnd.nextInt(testcase.N - 1) + 2;
+            squares[i] = new TestCase.SubSquare(rnd.nextInt(testcase.N - s + 1), rnd.nextInt(testcase.N - s + 1), s);
+            if (i < testcase.M) {
+                output.r[i] = squares[i].r;
+                output.c[i] = squares[i].c;
+                output.s[i] = squares[i].size;
+                output.size++;
+            }
+        }
+        board = new Board(testcase);
+        searchBoard = new SearchBoard(testcase);
+    }
+
+    @Benchmark
+    public int testCaseRotateClockwise() {
+        testcase.rotateClockwise(squares[next++ & (SQUARES - 1)]);
+        return testcase.C[0][0];
+    }
+
+    @Benchmark
+    public int boardRotateClockwise() {
+        TestCase.SubSquare sq = squares[next++ & (SQUARES - 1)];
+        board.rotateClockwise(sq.r, sq.c, sq.size);
+        return board.cells[0];
+    }
+
+    // 正しい色のマスの数と Zobrist ハッシュも更新する
+    @Benchmark
+    public long searchBoardRotateClockwise() {
+        TestCase.SubSquare sq = squares[next++ & (SQUARES - 1)];
+        searchBoard.rotateClockwise(sq.r, sq.c, sq.size);
+        return searchBoard.hash + searchBoard.matches;
+    }
+
+    // 盤面を戻す 20 行のコピーを含む
+    @Benchmark
+    public int calcScore() {
+        for (int i = 0; i < testcase.N; i++) {
+            System.arraycopy(initial[i], 0, testcase.C[i], 0, testcase.N);
+        }
+        return Judge.calcScore(testcase, output);
+    }
+
+    // シードを変えながら生成する
+    @Benchmark
+    public int generate() throws Exception {
+        return new TestCase(SEED + next++).C[0][0];
+    }
+}
@@ -0,0 +1,134 @@
+package bench;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// PointGrid の円環の探索と、距離が d に近い k 個の点の探索を、全点を調べる方法と比べる。
+// 点は 500x500 の範囲に一様に置き、数 (n) を 200 から 100000 まで変える
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class PointGridBenchmark {
+	private static final long SEED = 1;
+	private static final int QUERIES = 1024;
+	private static final double EPS = 2;
+	private static final int K = 8;
+
+	@Param({"200", "1000", "10000", "100000"})
+	int n;
+
+	int[] X;
+	int[] Y;
+	int[] points;
+	double[] dists;
+	PointGrid grid;
+	int[] out;
+	int next;
+
+	// 全点を調べる円環の探索
+	static int scanRing(int[] X, int[] Y, int x, int y, double lo, double hi, int exclude, int[] out) {
+		int count = 0;
+		for (int i = 0; i < X.length; i++) {
+			double d = Math.sqrt((double) (X[i] - x) * (X[i] - x) + (double) (Y[i] - y) * (Y[i] - y));
+			if (lo <= d && d <= hi && i != exclude) out[count++] = i;
+		}
+		return count;
+	}
+
+	// 全点を調べ、距離が d に近い順 (等しければ番号の小さい順) に k 個選ぶ
+	static int scanClosest(int[] X, int[] Y, int p, double d, int k, int[] out) {
+		double[] best = new double[k];
+		int size = 0;
+		for (int i = 0; i < X.length; i++) {
+			if (i == p) continue;
+			double key = Math.abs(Math.sqrt((double) (X[i] - X[p]) * (X[i] - X[p]) + (double) (Y[i] - Y[p]) * (Y[i] - Y[p])) - d);
+			if (size == k && key >= best[k - 1]) continue;
+			int j = size < k ? size++ : k - 1;
+			while (j > 0 && best[j - 1] > key) {
+				best[j] = best[j - 1];
+				out[j] = out[j - 1];
+				j--;
+			}
+			best[j] = key;
+			out[j] = i;
+		}
+		return size;
+	}
+
+	// 計測の前に、すべての問い合わせで PointGrid と全点の探索の結果が一致することを確かめる
+	@Setup
+	public void setup() {
+		TestCase.XorShift rnd = new TestCase.XorShift();
+		rnd.setSeed(SEED + n);
+		X = new int[n];
+		Y = new int[n];
+		for (int i = 0; i < n; i++) {
+			X[i] = rnd.nextInt(TestCase.MAX_X + 1);
+			Y[i] = rnd.nextInt(TestCase.MAX_Y + 1);
+		}
+		points = new int[QUERIES];
+		dists = new double[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			points[i] = rnd.nextInt(n);
+			dists[i] = 10 + rnd.nextInt(240);
+		}
+		grid = new PointGrid(X, Y);
+		out = new int[n];
+		int[] expected = new int[n];
+		for (int i = 0; i < QUERIES; i++) {
+			int p = points[i];
+			int m = grid.ring(X[p], Y[p], dists[i] - EPS, dists[i] + EPS, p, out);
+			int e = scanRing(X, Y, X[p], Y[p], dists[i] - EPS, dists[i] + EPS, p, expected);
+			Arrays.sort(out, 0, m);
+			if (m != e || !Arrays.equals(out, 0, m, expected, 0, e)) {
+				throw new IllegalStateException("N=" + n + ": ring results differ");
+			}
+			m = grid.closestToDistance(p, dists[i], K, out);
+			e = scanClosest(X, Y, p, dists[i], K, expected);
+			if (m != e || !Arrays.equals(out, 0, m, expected, 0, e)) {
+				throw new IllegalStateException("N=" + n + ": closest results differ");
+			}
+		}
+	}
+
+	@Benchmark
+	public int scanRing() {
+		int q = next++ & (QUERIES - 1);
+		int p = points[q];
+		return scanRing(X, Y, X[p], Y[p], dists[q] - EPS, dists[q] + EPS, p, out);
+	}
+
+	@Benchmark
+	public int gridRing() {
+		int q = next++ & (QUERIES - 1);
+		int p = points[q];
+		return grid.ring(X[p], Y[p], dists[q] - EPS, dists[q] + EPS, p, out);
+	}
+
+	@Benchmark
+	public int scanClosest() {
+		int q = next++ & (QUERIES - 1);
+		return scanClosest(X, Y, points[q], dists[q], K, out);
+	}
+
+	@Benchmark
+	public int gridClosest() {
+		int q = next++ & (QUERIES - 1);
+		return grid.closestToDistance(points[q], dists[q], K, out);
+	}
+}
@@ -0,0 +1,80 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// TestCase.variance、VarianceEvaluator による 2-opt の差分計算、テストケース生成
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class SimulatorBenchmark {
+	private static final long SEED = 1;
+	private static final int MOVES = 4096;
+
+	TestCase testCase;
+	int[] permutation;
+	// 2-opt で反転する区間 [moves[2k], moves[2k + 1]]
+	int[] moves;
+	VarianceEvaluator evaluator;
+	int next;
+
+	@Setup
+	public void setup() {
+		testCase = new TestCase(SEED);
+		TestCase.XorShift rnd = new TestCase.XorShift();
+		rnd.setSeed(SEED * 31 + 7);
+		permutation = new int[testCase.N];
+		for (int i = 0; i < testCase.N; i++) {
+			permutation[i] = i;
+		}
+		for (int i = testCase.N - 1; i > 0; i--) {
+			int j = rnd.nextInt(i + 1);
+			int tmp = permutation[i];
+			permutation[i] = permutation[j];
+			permutation[j] = tmp;
+		}
+		moves = new int[MOVES * 2];
+		for (int i = 0; i < moves.length; i += 2) {
+			int a = rnd.nextInt(testCase.N);
+			int b = rnd.nextInt(testCase.N);
+			moves[i] = Math.min(a, b);
+			moves[i + 1] = Math.max(a, b);
+		}
+		evaluator = new VarianceEvaluator(testCase, permutation);
+	}
+
+	@Benchmark
+	public double variance() {
+		return testCase.variance(permutation);
+	}
+
+	@Benchmark
+	public double deltaTwoOpt() {
+		int k = (next++ & (MOVES - 1)) * 2;
+		return evaluator.deltaTwoOpt(moves[k], moves[k + 1]);
+	}
+
+	// シードを変えながら生成する
+	@Benchmark
+	public int generateSha1Prng() {
+		return new TestCase(SEED + next++, TestCase.Rng.SHA1PRNG).X[0];
+	}
+
+	@Benchmark
+	public int generateXorShift() {
+		return new TestCase(SEED + next++, TestCase.Rng.XORSHIFT).X[0];
+	}
+}
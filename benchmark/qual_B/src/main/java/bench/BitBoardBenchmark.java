@@ -0,0 +1,190 @@
+package bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// BitBoard と、int 配列上の幅優先探索による連結成分の計算を、qual_B の入力例 3 つで比べる。
+// component は全マスの連結成分の大きさの合計 (1 回で N * N マス)、incrementRemove は 2500 手のランダムな操作列
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class BitBoardBenchmark {
+    private static final int[] DR = {1, 0, -1, 0};
+    private static final int[] DC = {0, 1, 0, -1};
+
+    // 比較対象の盤面。remove のたびに幅優先探索で連結成分を求める
+    static class ScalarBoard {
+        final int n;
+        final int[] a;
+        final int[] stack;
+        final int[] visited;
+        int stamp;
+
+        ScalarBoard(TestCase testcase) {
+            n = testcase.N;
+            a = new int[n * n];
+            for (int i = 0; i < n; i++) {
+                System.arraycopy(testcase.A[i], 0, a, i * n, n);
+            }
+            stack = new int[n * n];
+            visited = new int[n * n];
+        }
+
+        int component(int p) {
+            int v = a[p];
+            int id = ++stamp;
+            int size = 0;
+            stack[size++] = p;
+            visited[p] = id;
+            for (int i = 0; i < size; i++) {
+                int q = stack[i];
+                int qr = q / n;
+                int qc = q - qr * n;
+                for (int j = 0; j < 4; j++) {
+                    int nr = qr + DR[j];
+                    int nc = qc + DC[j];
+                    if (0 <= nr && nr < n && 0 <= nc && nc < n) {
+                        int np = nr * n + nc;
+                        if (a[np] == v && visited[np] != id) {
+                            visited[np] = id;
+                            stack[size++] = np;
+                        }
+                    }
+                }
+            }
+            return size;
+        }
+
+        int remove(int p) {
+            int v = a[p];
+            int size = component(p);
+            if (size < v) return 0;
+            for (int i = 0; i < size; i++) {
+                a[stack[i]] = ComponentIndex.REMOVED;
+            }
+            return size;
+        }
+    }
+
+    // 4 割を収穫にしたランダムな操作列。r * N + c の値を持ち、収穫は負の値 (-1 - p) で表す
+    static int[] randomMoves(TestCase testcase, long seed) {
+        TestCase.XorShift rnd = new TestCase.XorShift();
+        rnd.setSeed(seed);
+        int[] moves = new int[testcase.M];
+        for (int i = 0; i < moves.length; i++) {
+            int p = rnd.nextInt(testcase.N * testcase.N);
+            moves[i] = rnd.nextInt(10) < 4 ? -1 - p : p;
+        }
+        return moves;
+    }
+
+    static long simulateScalar(TestCase testcase, int[] moves) {
+        ScalarBoard board = new ScalarBoard(testcase);
+        long score = 0;
+        for (int move : moves) {
+            int p = move < 0 ? -1 - move : move;
+            if (board.a[p] == ComponentIndex.REMOVED) continue;
+            if (move < 0) {
+                int v = board.a[p];
+                score += (long) board.remove(p) * v;
+            } else {
+                board.a[p]++;
+            }
+        }
+        return score;
+    }
+
+    static long simulateBitBoard(TestCase testcase, int[] moves) {
+        BitBoard board = new BitBoard(testcase);
+        long score = 0;
+        for (int move : moves) {
+            int p = move < 0 ? -1 - move : move;
+            int r = p / testcase.N;
+            int c = p % testcase.N;
+            if (board.isRemoved(r, c)) continue;
+            if (move < 0) {
+                int v = board.get(r, c);
+                score += (long) board.remove(r, c) * v;
+            } else {
+                board.increment(r, c);
+            }
+        }
+        return score;
+    }
+
+    @Param({"1", "2", "3"})
+    int input;
+
+    TestCase testcase;
+    ScalarBoard scalar;
+    BitBoard bits;
+    long[] out;
+    int[] moves;
+
+    // 計測の前に、BitBoard と幅優先探索の結果が一致することを確かめる
+    @Setup
+    public void setup() throws IOException {
+        try (InputStream in = BitBoardBenchmark.class.getResourceAsStream("/input_" + input + ".txt");
+             Scanner sc = new Scanner(in)) {
+            testcase = new TestCase(sc);
+        }
+        scalar = new ScalarBoard(testcase);
+        bits = new BitBoard(testcase);
+        out = new long[testcase.N];
+        long expected = 0;
+        long actual = 0;
+        for (int p = 0; p < testcase.N * testcase.N; p++) {
+            expected += scalar.component(p);
+            actual += bits.component(p / testcase.N, p % testcase.N, out);
+        }
+        moves = randomMoves(testcase, input);
+        if (expected != actual || simulateScalar(testcase, moves) != simulateBitBoard(testcase, moves)) {
+            throw new IllegalStateException("input_" + input + ": BitBoard and BFS disagree");
+        }
+    }
+
+    @Benchmark
+    public long bfsComponent() {
+        long sum = 0;
+        for (int p = 0; p < testcase.N * testcase.N; p++) {
+            sum += scalar.component(p);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long bitBoardComponent() {
+        long sum = 0;
+        for (int p = 0; p < testcase.N * testcase.N; p++) {
+            sum += bits.component(p / testcase.N, p % testcase.N, out);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long bfsIncrementRemove() {
+        return simulateScalar(testcase, moves);
+    }
+
+    @Benchmark
+    public long bitBoardIncrementRemove() {
+        return simulateBitBoard(testcase, moves);
+    }
+}
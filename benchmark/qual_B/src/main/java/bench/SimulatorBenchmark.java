@@ -0,0 +1,77 @@
+package bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// 出力の解析、Judge.Output の increment / remove を含む得点計算 (2500 手)、テストケース生成
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class SimulatorBenchmark {
+    private static final long SEED = 1;
+
+    TestCase testcase;
+    byte[] output;
+    PrintStream err;
+    int next;
+
+    // 2500 手のうち 4 割を収穫にしたランダムな出力
+    static byte[] randomOutput(TestCase testcase) {
+        TestCase.XorShift rnd = new TestCase.XorShift();
+        rnd.setSeed(SEED * 31 + 7);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < testcase.M; i++) {
+            sb.append(rnd.nextInt(10) < 4 ? 2 : 1).append(' ');
+            sb.append(rnd.nextInt(testcase.N)).append(' ').append(rnd.nextInt(testcase.N)).append('\n');
+        }
+        return sb.toString().getBytes();
+    }
+
+    @Setup
+    public void setup() {
+        testcase = new TestCase(SEED);
+        output = randomOutput(testcase);
+        // 収穫できなかった操作の警告は計測の邪魔になるので捨てる
+        err = System.err;
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setErr(err);
+    }
+
+    @Benchmark
+    public int parseOutput() {
+        return new Judge.Output(new OutputTokenizer(ByteBuffer.wrap(output)), testcase).size;
+    }
+
+    // Output は盤面を持ち、得点計算で書き換わるので、毎回解析し直す
+    @Benchmark
+    public int parseAndCalcScore() {
+        return Judge.calcScore(testcase, new Judge.Output(new OutputTokenizer(ByteBuffer.wrap(output)), testcase));
+    }
+
+    // シードを変えながら生成する
+    @Benchmark
+    public int generate() {
+        return new TestCase(SEED + next++).A[0][0];
+    }
+}
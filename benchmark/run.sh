@@ -0,0 +1,9 @@
+#!/bin/sh
+# ベンチマークをビルドし、各問題のベンチマークを -prof gc 付きで実行する。
+# 引数はそのまま JMH に渡される (例: ./run.sh -f 1 -wi 2 -i 3 'SimulatorBenchmark')
+set -e
+cd "$(dirname "$0")"
+mvn -B -q package
+for problem in qual_A qual_B final_A final_B; do
+    java -jar "$problem/target/benchmarks.jar" -prof gc "$@"
+done
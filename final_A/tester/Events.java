@@ -0,0 +1,37 @@
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Java Flight Recorder のイベント。記録していないときは commit しても何もしない。
+// java -XX:StartFlightRecording=filename=rec.jfr Tester ... で記録し、jfr print --events 'rcoc.*' rec.jfr で見られる
+class Events {
+    @Name("rcoc.final_A.Game")
+    @Label("Tester.execute")
+    @Category({"RCOC", "final_A"})
+    static class Game extends Event {
+        @Label("Seed")
+        long seed;
+        @Label("Moves")
+        long moves;
+        @Label("Score")
+        int score;
+    }
+
+    // 解答プログラムの次の行動を待ち始めてから、その行動を処理し終えるまで
+    @Name("rcoc.final_A.Move")
+    @Label("Move")
+    @Category({"RCOC", "final_A"})
+    @StackTrace(false)
+    static class Move extends Event {
+        @Label("Position")
+        int position;
+        @Label("Card")
+        int card;
+        @Label("Total Distance")
+        int totalDistance;
+        @Label("Score")
+        int score;
+    }
+}
@@ -0,0 +1,13 @@
+// Tester の -solver オプションで、同じ JVM 内から直接呼び出される回答プログラム。
+// 実装クラスは引数のない public なコンストラクタを持つ必要があり、1 ゲームごとに新しいインスタンスが作られる。
+// 標準入出力でのやりとりと同じ検証 (移動先の範囲、移動距離の合計、-1 による終了) が行われる。
+public interface InteractiveSolver {
+    // 最初の nextMove の呼び出しで lastCard に渡される値
+    int NO_CARD = -1;
+
+    // ゲームの開始時に 1 度だけ呼ばれる。標準入力の 1 行目の N, T に相当する
+    void init(int n, int t);
+
+    // 直前にめくったカードの数字を受け取り、次に移動する位置を返す。-1 を返すとゲームを終了する
+    int nextMove(int lastCard);
+}
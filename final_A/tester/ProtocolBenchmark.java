@@ -0,0 +1,129 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Scanner;
+
+// Tester と解答プログラムの間のやりとりのうち、テスター側の入出力処理にかかる時間を測る。
+// 解答プログラムの出力をメモリ上に用意し、カードの書き込み先は捨てる (flush 回数だけ数える)。
+public class ProtocolBenchmark {
+
+    private static final int MOVES = 10000;
+
+    static class CountingOutputStream extends OutputStream {
+        long bytes;
+        long flushes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+
+    interface Game {
+        long play(InputStream in, CountingOutputStream out) throws IOException;
+    }
+
+    // 変更前の Tester.execute と同じ処理
+    static long legacy(InputStream in, CountingOutputStream out) throws IOException {
+        long sum = 0;
+        try (Scanner sc = new Scanner(in)) {
+            out.write(("50 10000\n").getBytes());
+            out.flush();
+            while (true) {
+                String line = sc.nextLine();
+                String[] elements = line.trim().split("\\s+");
+                if (elements.length == 0 || elements.length > 1) {
+                    throw new RuntimeException("不正な出力です: " + line);
+                }
+                int newPos = Integer.parseInt(elements[0]);
+                if (newPos == -1) break;
+                int card = newPos % 25 + 1;
+                sum += card;
+                out.write((card + "\n").getBytes());
+                out.flush();
+            }
+        }
+        return sum;
+    }
+
+    static long current(InputStream in, CountingOutputStream out, Tester.FlushPolicy policy) throws IOException {
+        long sum = 0;
+        Tester.CardWriter writer = new Tester.CardWriter(out, policy);
+        try (Tester.MoveReader reader = new Tester.MoveReader(in, writer)) {
+            writer.writeInt(50);
+            writer.writeSpace();
+            writer.writeInt(10000);
+            writer.endLine();
+            while (true) {
+                int newPos = reader.readMove();
+                if (newPos == -1) break;
+                int card = newPos % 25 + 1;
+                sum += card;
+                writer.writeInt(card);
+                writer.endLine();
+            }
+        }
+        return sum;
+    }
+
+    // 1 手ずつ読めるだけ返す入力。パイプ越しのやりとりと同じく、先の行を先読みさせない
+    static class LineByLineInputStream extends ByteArrayInputStream {
+        LineByLineInputStream(byte[] buf) {
+            super(buf);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            int end = pos;
+            while (end < count && buf[end] != '\n') end++;
+            return super.read(b, off, Math.min(len, end - pos + 1));
+        }
+    }
+
+    static void measure(String name, byte[] input, Game game) throws IOException {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        for (int i = 0; i < 200; i++) {
+            game.play(new LineByLineInputStream(input), new CountingOutputStream());
+        }
+        int rounds = 500;
+        CountingOutputStream out = new CountingOutputStream();
+        long allocated = bean.getThreadAllocatedBytes(tid);
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            game.play(new LineByLineInputStream(input), out);
+        }
+        long elapsed = System.nanoTime() - start;
+        allocated = bean.getThreadAllocatedBytes(tid) - allocated;
+        long moves = (long) rounds * MOVES;
+        System.out.printf("%-12s %8.1f ns/move %8.1f B/move %6.2f flush/move%n",
+                name, (double) elapsed / moves, (double) allocated / moves, (double) out.flushes / moves);
+    }
+
+    public static void main(String[] args) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        int pos = 0;
+        for (int i = 0; i < MOVES; i++) {
+            pos = (pos * 7 + 3) % 50;
+            sb.append(pos).append('\n');
+        }
+        sb.append(-1).append('\n');
+        byte[] input = sb.toString().getBytes();
+
+        measure("legacy", input, ProtocolBenchmark::legacy);
+        measure("eager", input, (in, out) -> current(in, out, Tester.FlushPolicy.EAGER));
+        measure("lazy", input, (in, out) -> current(in, out, Tester.FlushPolicy.LAZY));
+    }
+}
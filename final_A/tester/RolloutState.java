@@ -0,0 +1,140 @@
+// Tester.State と同じゲームを、乱数の状態とカードを平たい配列 (long[] と byte[]) で持って進める状態。
+// fork() で複製し、restoreFrom() で既存の状態へ配列をコピーして戻せるので、
+// 先読みやモンテカルロ法のプレイアウトでオブジェクトを確保し直す必要がない。
+// めくっていないカードは resample() で乱数を選び直し、見えている情報と矛盾しない別の盤面として試せる。
+class RolloutState {
+    static final int N = Tester.N;
+    static final int T = Tester.T;
+    static final int UNKNOWN = Tester.State.UNKNOWN;
+    // カードの種類の数と、nextInt(KINDS) で棄却しない乱数の上限
+    private static final int KINDS = N / 2;
+    private static final long UPPER = Long.divideUnsigned(-1, KINDS) * KINDS;
+
+    interface Policy {
+        // 次の移動先を返す。-1 を返すと終了する。lastCard は直前にめくったカード (最初の呼び出しでは UNKNOWN)
+        int next(RolloutState state, int lastCard);
+    }
+
+    // 位置ごとの乱数の状態と、表になっているカード (めくっていなければ UNKNOWN)
+    final long[] rng = new long[N];
+    final byte[] cards = new byte[N];
+    int pos;
+    int totalDist;
+    int score;
+
+    // Tester.State(seed) と同じ状態
+    RolloutState(long seed) {
+        Tester.XorShift rndSeed = new Tester.XorShift();
+        rndSeed.setSeed(seed);
+        for (int i = 0; i < N; i++) {
+            rng[i] = rndSeed.next();
+            cards[i] = UNKNOWN;
+            rndSeed.jump(Tester.State.SKIP_T);
+        }
+    }
+
+    // 実行中の Tester.State の複製
+    RolloutState(Tester.State state) {
+        for (int i = 0; i < N; i++) {
+            rng[i] = state.rnds[i].x;
+            cards[i] = (byte) state.cards[i];
+        }
+        pos = state.pos;
+        totalDist = state.totalDist;
+        score = state.score;
+    }
+
+    // 解答プログラムから見える情報 (表になっているカード、位置、移動距離、得点) から作る。
+    // めくっていないカードは seed から選び直した乱数で決まる
+    RolloutState(int[] visibleCards, int pos, int totalDist, int score, long seed) {
+        for (int i = 0; i < N; i++) {
+            cards[i] = (byte) visibleCards[i];
+        }
+        this.pos = pos;
+        this.totalDist = totalDist;
+        this.score = score;
+        resample(seed);
+    }
+
+    private RolloutState() {
+    }
+
+    RolloutState fork() {
+        RolloutState copy = new RolloutState();
+        copy.restoreFrom(this);
+        return copy;
+    }
+
+    // other と同じ状態にする。配列は確保し直さない
+    void restoreFrom(RolloutState other) {
+        System.arraycopy(other.rng, 0, rng, 0, N);
+        System.arraycopy(other.cards, 0, cards, 0, N);
+        pos = other.pos;
+        totalDist = other.totalDist;
+        score = other.score;
+    }
+
+    // これからめくるカードを決める乱数を、すべての位置について seed から選び直す。表になっているカードはそのまま
+    void resample(long seed) {
+        Tester.XorShift rnd = new Tester.XorShift();
+        // 0 から始めると xorshift は 0 のままになる
+        rnd.setSeed(seed != 0 ? seed : 88172645463325252L);
+        for (int i = 0; i < N; i++) {
+            rng[i] = rnd.next();
+        }
+    }
+
+    // Tester.State.moveAndRead と同じ。移動距離の上限は確かめない
+    int moveAndRead(int newPos) {
+        int card = cards[newPos];
+        if (card == UNKNOWN) {
+            card = draw(newPos);
+            cards[newPos] = (byte) card;
+        }
+        totalDist += Math.abs(newPos - pos);
+        if (newPos != pos && cards[pos] == card) {
+            score += card;
+            cards[pos] = cards[newPos] = UNKNOWN;
+        }
+        pos = newPos;
+        return card;
+    }
+
+    // Tester.XorShift.nextInt(KINDS) + 1 と同じ値
+    private int draw(int i) {
+        long x = rng[i];
+        do {
+            x ^= x << 13;
+            x ^= x >>> 7;
+            x ^= x << 17;
+        } while (Long.compareUnsigned(x, UPPER) >= 0);
+        rng[i] = x;
+        return (int) Long.remainderUnsigned(x, KINDS) + 1;
+    }
+
+    // 移動距離の合計が T を超えない範囲で newPos へ移動できるか
+    boolean canMove(int newPos) {
+        return totalDist + Math.abs(newPos - pos) <= T;
+    }
+
+    // moves[from, to) の順に移動し、得点の増分を返す。移動距離の合計が T を超える移動の手前で止める
+    int play(int[] moves, int from, int to) {
+        int before = score;
+        for (int i = from; i < to && canMove(moves[i]); i++) {
+            moveAndRead(moves[i]);
+        }
+        return score - before;
+    }
+
+    // policy が -1 を返すか、移動距離の合計が T を超えるまで policy が選ぶ移動先へ移動し、得点の増分を返す
+    int rollout(Policy policy) {
+        int before = score;
+        int card = UNKNOWN;
+        while (true) {
+            int next = policy.next(this, card);
+            if (next < 0 || N <= next || !canMove(next)) break;
+            card = moveAndRead(next);
+        }
+        return score - before;
+    }
+}
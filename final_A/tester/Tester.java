@@ -1,16 +1,33 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.Flushable;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
 import java.util.Random;
-import java.util.Scanner;
-import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.ForkJoinTask;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 public class Tester {
 
-    private static final int N = 50;
-    private static final int T = 10000;
+    static final int N = 50;
+    static final int T = 10000;
 
     static class XorShift {
         long x = 88172645463325252L;
@@ -34,10 +51,51 @@ public class Tester {
             }
             return (int) Long.remainderUnsigned(v, n);
         }
+
+        // 状態を 64 次元の GF(2) ベクトルとみなしたとき、next() は線形変換になる。
+        // その行列の k 乗を、列 (基底ベクトル 1L << j の行き先) の配列として返す
+        static long[] jumpMatrix(long k) {
+            long[] result = new long[64];
+            long[] power = new long[64];
+            for (int j = 0; j < 64; j++) {
+                result[j] = 1L << j;
+                XorShift step = new XorShift();
+                step.setSeed(1L << j);
+                power[j] = step.next();
+            }
+            for (; k > 0; k >>>= 1) {
+                if ((k & 1) != 0) result = multiply(power, result);
+                power = multiply(power, power);
+            }
+            return result;
+        }
+
+        private static long[] multiply(long[] a, long[] b) {
+            long[] c = new long[64];
+            for (int j = 0; j < 64; j++) {
+                c[j] = apply(a, b[j]);
+            }
+            return c;
+        }
+
+        private static long apply(long[] matrix, long v) {
+            long ret = 0;
+            for (; v != 0; v &= v - 1) {
+                ret ^= matrix[Long.numberOfTrailingZeros(v)];
+            }
+            return ret;
+        }
+
+        // jumpMatrix(k) を渡すと、next() を k 回呼んだのと同じ状態に進める
+        void jump(long[] matrix) {
+            x = apply(matrix, x);
+        }
     }
 
     static class State {
         static final int UNKNOWN = -1;
+        // カードごとにシード用乱数列を T 個読み飛ばす
+        static final long[] SKIP_T = XorShift.jumpMatrix(T);
         XorShift[] rnds = new XorShift[N];
         int[] cards = new int[N];
         int pos;
@@ -51,9 +109,7 @@ public class Tester {
                 rnds[i] = new XorShift();
                 rnds[i].setSeed(rndSeed.next());
                 cards[i] = UNKNOWN;
-                for (int j = 0; j < T; j++) {
-                    rndSeed.next();
-                }
+                rndSeed.jump(SKIP_T);
             }
         }
 
@@ -73,100 +129,586 @@ public class Tester {
         }
     }
 
-    private int execute(long seed) throws Exception {
+    enum FlushPolicy {
+        // 1 行書くたびに送る
+        EAGER,
+        // 解答プログラムの出力を待つ直前にまとめて送る
+        LAZY,
+    }
+
+    // 解答プログラムへの出力を固定長のバッファに整数のまま書き込む
+    static class CardWriter implements Flushable, Closeable {
+        private final OutputStream out;
+        private final FlushPolicy policy;
+        private final byte[] buf = new byte[1 << 12];
+        private int size;
+
+        CardWriter(OutputStream out, FlushPolicy policy) {
+            this.out = out;
+            this.policy = policy;
+        }
+
+        void writeInt(int v) throws IOException {
+            if (buf.length - size < 12) flushBuffer();
+            if (v < 0) {
+                buf[size++] = '-';
+            } else {
+                v = -v;
+            }
+            // 負の値のまま桁を取り出すと Integer.MIN_VALUE も扱える
+            int start = size;
+            do {
+                buf[size++] = (byte) ('0' - v % 10);
+                v /= 10;
+            } while (v != 0);
+            for (int i = start, j = size - 1; i < j; i++, j--) {
+                byte tmp = buf[i];
+                buf[i] = buf[j];
+                buf[j] = tmp;
+            }
+        }
+
+        void writeSpace() throws IOException {
+            if (size == buf.length) flushBuffer();
+            buf[size++] = ' ';
+        }
+
+        void endLine() throws IOException {
+            if (size == buf.length) flushBuffer();
+            buf[size++] = '\n';
+            if (policy == FlushPolicy.EAGER) flush();
+        }
+
+        private void flushBuffer() throws IOException {
+            out.write(buf, 0, size);
+            size = 0;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (size == 0) return;
+            flushBuffer();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    // 解答プログラムの出力を 1 行に 1 つの整数として、文字列を作らずに読む
+    static class MoveReader implements Closeable {
+        private final InputStream in;
+        private final Flushable beforeRead;
+        private final byte[] buf = new byte[1 << 12];
+        private int head, tail;
+        // エラーメッセージ用に現在の行を保持する
+        private byte[] line = new byte[64];
+        private int lineLength;
+
+        MoveReader(InputStream in, Flushable beforeRead) {
+            this.in = in;
+            this.beforeRead = beforeRead;
+        }
+
+        private boolean fill() throws IOException {
+            if (beforeRead != null) beforeRead.flush();
+            int n = in.read(buf);
+            if (n <= 0) return false;
+            head = 0;
+            tail = n;
+            return true;
+        }
+
+        private void readLine() throws IOException {
+            lineLength = 0;
+            boolean any = false;
+            while (true) {
+                if (head == tail && !fill()) {
+                    if (!any) throw new NoSuchElementException("No line found");
+                    break;
+                }
+                any = true;
+                byte b = buf[head++];
+                if (b == '\n') break;
+                if (lineLength == line.length) line = Arrays.copyOf(line, line.length * 2);
+                line[lineLength++] = b;
+            }
+            if (lineLength > 0 && line[lineLength - 1] == '\r') lineLength--;
+        }
+
+        // 1 行読み、前後の空白を除いて Integer.parseInt と同じ規則で解釈する
+        int readMove() throws IOException {
+            readLine();
+            int i = 0;
+            int end = lineLength;
+            while (i < end && line[i] <= ' ') i++;
+            while (i < end && line[end - 1] <= ' ') end--;
+            boolean negative = false;
+            if (i < end && (line[i] == '-' || line[i] == '+')) {
+                negative = line[i] == '-';
+                i++;
+            }
+            if (i == end) throw invalidLine();
+            // 負の値で累積して Integer.MIN_VALUE まで表す
+            int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+            int multmin = limit / 10;
+            int v = 0;
+            for (; i < end; i++) {
+                int d = line[i] - '0';
+                if (d < 0 || 9 < d || v < multmin) throw invalidLine();
+                v *= 10;
+                if (v < limit + d) throw invalidLine();
+                v -= d;
+            }
+            return negative ? v : -v;
+        }
+
+        private RuntimeException invalidLine() {
+            return new RuntimeException("不正な出力です: " + new String(line, 0, lineLength));
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    static class GameResult {
+        int score;
+        // 解答プログラムにカードを渡してから、次の行動を受け取るまでの時間 (ns)
+        final Metrics.Histogram latency = new Metrics.Histogram();
+        // 解答プログラムの CPU 時間 (ns)。最後に取得できた値で、取得できない場合は -1
+        long cpuNanos = -1;
+        long wallNanos;
+
+        String stats() {
+            return "moves:" + latency.count
+                    + " latency_p50_us:" + latency.percentile(0.5) / 1000
+                    + " latency_p99_us:" + latency.percentile(0.99) / 1000
+                    + " latency_max_us:" + (latency.count == 0 ? 0 : latency.max) / 1000
+                    + " cpu_ms:" + (cpuNanos < 0 ? -1 : cpuNanos / 1000000)
+                    + " wall_ms:" + wallNanos / 1000000;
+        }
+    }
+
+    // 解答プログラムの制限時間を監視し、超過したらプロセスを強制終了する。
+    // 解答プログラムが応答しないと読み込みが戻らないため、別のスレッドから一定間隔で確認する
+    static class Watchdog {
+        private static final Set<Watchdog> active = ConcurrentHashMap.newKeySet();
+
+        static {
+            Thread thread = new Thread(() -> {
+                while (true) {
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    long now = System.nanoTime();
+                    for (Watchdog watchdog : active) {
+                        watchdog.check(now);
+                    }
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private final Process proc;
+        private final long start;
+        // 次の行動を待ち始めた時刻。待っていないときは Long.MIN_VALUE
+        volatile long waitingSince = Long.MIN_VALUE;
+        volatile String expired;
+
+        Watchdog(Process proc, long start) {
+            this.proc = proc;
+            this.start = start;
+            active.add(this);
+        }
+
+        private void check(long now) {
+            // nanoTime は負の値もとり得るので、待っていないことは差をとる前に判定する
+            long since = waitingSince;
+            long moveElapsed = since == Long.MIN_VALUE ? 0 : now - since;
+            String message = timeLimitExceeded(now - start, moveElapsed);
+            if (message != null && expired == null) {
+                expired = message;
+                proc.destroyForcibly();
+            }
+        }
+
+        void stop() {
+            active.remove(this);
+        }
+    }
+
+    // 経過時間 (ns) が制限を超えていればそのメッセージを返す
+    private static String timeLimitExceeded(long elapsed, long moveElapsed) {
+        if (timeLimitMillis > 0 && elapsed > timeLimitMillis * 1000000) {
+            return "制限時間 " + timeLimitMillis + " ms を超過しました";
+        }
+        if (moveTimeLimitMillis > 0 && moveElapsed > moveTimeLimitMillis * 1000000) {
+            return "1 手の制限時間 " + moveTimeLimitMillis + " ms を超過しました";
+        }
+        return null;
+    }
+
+    private static long cpuNanos(Process proc) {
+        return proc.toHandle().info().totalCpuDuration().map(Duration::toNanos).orElse(-1L);
+    }
+
+    // 解答プログラムが指定した移動先を検証して移動し、めくったカードを返す
+    private static int move(State state, int newPos) {
+        if (newPos < 0 || N <= newPos) {
+            throw new RuntimeException("不正な位置を指定しました: " + newPos);
+        }
+        return state.moveAndRead(newPos);
+    }
+
+    // 移動後の検証と記録
+    private static void afterMove(State state, int card, TraceLog trace) {
+        if (state.totalDist > T) {
+            throw new RuntimeException("距離 " + T + " を超えて行動しようとしました");
+        }
+        if (trace != null) {
+            trace.record(state, card);
+        }
+    }
+
+    private static void commitMove(Events.Move event, State state, int card) {
+        if (!event.shouldCommit()) return;
+        event.position = state.pos;
+        event.card = card;
+        event.totalDistance = state.totalDist;
+        event.score = state.score;
+        event.commit();
+    }
+
+    // -debug なら標準エラー出力へ、-trace-dir ならシードごとの CSV ファイルへ書き出す記録。どちらもなければ null
+    private static TraceLog openTrace(long seed) throws IOException {
+        if (!debug && traceDir == null) return null;
+        OutputStream csv = traceDir == null ? null : Files.newOutputStream(traceDir.resolve("seed_" + seed + ".csv"));
+        return new TraceLog(csv, debug ? System.err : null);
+    }
+
+    // 解答プログラムの標準エラー出力を out へまとめてコピーする。limit バイトを超えた分は読み捨て、最後に省略したバイト数を書く。
+    // 読み捨てている間も読み続けるので、解答プログラムが書き込みで止まることはない
+    static void copyStderr(InputStream in, OutputStream out, long limit) throws IOException {
+        byte[] buf = new byte[1 << 13];
+        long copied = 0;
+        long skipped = 0;
+        while (true) {
+            int n = in.read(buf);
+            if (n == -1) break;
+            int m = limit < 0 ? n : (int) Math.min(n, limit - copied);
+            if (m > 0) {
+                out.write(buf, 0, m);
+                out.flush();
+                copied += m;
+            }
+            skipped += n - m;
+        }
+        if (skipped > 0) {
+            out.write(("\n(標準エラー出力が " + limit + " バイトを超えたため、残りの " + skipped + " バイトを省略しました)\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+    }
+
+    private GameResult execute(long seed) throws Exception {
+        Events.Game event = new Events.Game();
+        event.begin();
+        GameResult result = solverClass != null ? executeInProcess(seed) : executeProcess(seed);
+        event.seed = seed;
+        event.moves = result.latency.count;
+        event.score = result.score;
+        event.commit();
+        Metrics.count("tester.games", 1);
+        Metrics.count("tester.moves", result.latency.count);
+        Metrics.record("tester.game_ns", result.wallNanos);
+        Metrics.record("tester.score", result.score);
+        return result;
+    }
+
+    private GameResult executeProcess(long seed) throws Exception {
         State state = new State(seed);
+        GameResult result = new GameResult();
+        long start = System.nanoTime();
         ProcessBuilder pb = new ProcessBuilder(command.split("\\s+"));
         Process proc = pb.start();
-        OutputStream os = proc.getOutputStream();
-        ForkJoinTask<?> readError = ForkJoinPool.commonPool().submit(() -> {
+        Watchdog watchdog = timeLimitMillis > 0 || moveTimeLimitMillis > 0 ? new Watchdog(proc, start) : null;
+        Future<?> readError = stderrReaders.submit(() -> {
             // redirect command stderr
-            try (InputStreamReader reader = new InputStreamReader(proc.getErrorStream())) {
-                while (true) {
-                    int ch = reader.read();
-                    if (ch == -1) break;
-                    System.err.print((char) ch);
+            try (InputStream err = proc.getErrorStream()) {
+                if (traceDir == null) {
+                    copyStderr(err, System.err, stderrLimit);
+                } else {
+                    try (OutputStream out = Files.newOutputStream(traceDir.resolve("seed_" + seed + ".stderr"))) {
+                        copyStderr(err, out, stderrLimit);
+                    }
                 }
             } catch (IOException e) {
                 e.printStackTrace();
             }
         });
-        try (Scanner sc = new Scanner(proc.getInputStream())) {
-            os.write((N + " " + T + "\n").getBytes());
-            os.flush();
+        CardWriter writer = new CardWriter(proc.getOutputStream(), flushPolicy);
+        try (MoveReader reader = new MoveReader(proc.getInputStream(), writer);
+             TraceLog trace = openTrace(seed)) {
+            writer.writeInt(N);
+            writer.writeSpace();
+            writer.writeInt(T);
+            writer.endLine();
             while (true) {
-                String line = sc.nextLine();
-                String[] elements = line.trim().split("\\s+");
-                if (elements.length == 0 || elements.length > 1) {
-                    throw new RuntimeException("不正な出力です: " + line);
+                Events.Move event = new Events.Move();
+                event.begin();
+                long sent = System.nanoTime();
+                if (watchdog != null) watchdog.waitingSince = sent;
+                int newPos = reader.readMove();
+                long received = System.nanoTime();
+                if (watchdog != null) watchdog.waitingSince = Long.MIN_VALUE;
+                result.latency.record(received - sent);
+                Metrics.record("tester.move_latency_ns", received - sent);
+                String timeout = timeLimitExceeded(received - start, received - sent);
+                if (timeout != null) {
+                    throw new RuntimeException(timeout);
                 }
-                int newPos;
-                try {
-                    newPos = Integer.parseInt(elements[0]);
-                } catch (NumberFormatException e) {
-                    throw new RuntimeException("不正な出力です: " + line);
+                // 終了したプロセスの CPU 時間は取得できないので、途中でも取得しておく
+                if (newPos == -1 || (result.latency.count & 255) == 0) {
+                    result.cpuNanos = Math.max(result.cpuNanos, cpuNanos(proc));
                 }
                 if (newPos == -1) {
                     break;
                 }
-                if (newPos < 0 || N <= newPos) {
-                    throw new RuntimeException("不正な位置を指定しました: " + newPos);
-                }
-                int card = state.moveAndRead(newPos);
-                os.write((card + "\n").getBytes());
-                os.flush();
-                if (state.totalDist > T) {
-                    throw new RuntimeException("距離 " + T + " を超えて行動しようとしました");
-                }
-                if (debug) {
-                    System.err.printf("total distance:%4d score:%4d position:%2d card:%2d\n",
-                            state.totalDist, state.score, state.pos, card);
-                    StringBuilder row = new StringBuilder(" ");
-                    for (int i = 0; i < N; i++) {
-                        int c = state.cards[i];
-                        String num = c == State.UNKNOWN ? "??" : String.format("%2d", c);
-                        row.append(num).append(" ");
-                    }
-                    row.replace(state.pos * 3, state.pos * 3 + 1, "[");
-                    row.replace(state.pos * 3 + 3, state.pos * 3 + 4, "]");
-                    System.err.println(row);
-                    System.err.println();
-                }
+                int card = move(state, newPos);
+                writer.writeInt(card);
+                writer.endLine();
+                afterMove(state, card, trace);
+                commitMove(event, state, card);
             }
             readError.get(10, TimeUnit.SECONDS); // wait termination
-            return state.score;
+            result.score = state.score;
+            result.wallNanos = System.nanoTime() - start;
+            return result;
+        } catch (NoSuchElementException | IOException e) {
+            // 制限時間の超過で強制終了した場合は、読み込みのエラーではなく超過として報告する
+            if (watchdog != null && watchdog.expired != null) {
+                throw new RuntimeException(watchdog.expired);
+            }
+            throw e;
         } finally {
+            if (watchdog != null) watchdog.stop();
             proc.destroy();
         }
     }
 
+    // 同じ JVM 内の InteractiveSolver とやりとりする。検証の規則はプロセスの場合と同じ。
+    // 呼び出しを中断できないので、制限時間は各呼び出しが戻った後に確認する
+    private GameResult executeInProcess(long seed) throws Exception {
+        State state = new State(seed);
+        GameResult result = new GameResult();
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        long start = System.nanoTime();
+        long cpuStart = bean.getCurrentThreadCpuTime();
+        InteractiveSolver solver = solverClass.getDeclaredConstructor().newInstance();
+        solver.init(N, T);
+        int card = InteractiveSolver.NO_CARD;
+        try (TraceLog trace = openTrace(seed)) {
+            while (true) {
+                Events.Move event = new Events.Move();
+                event.begin();
+                long sent = System.nanoTime();
+                int newPos = solver.nextMove(card);
+                long received = System.nanoTime();
+                result.latency.record(received - sent);
+                Metrics.record("tester.move_latency_ns", received - sent);
+                String timeout = timeLimitExceeded(received - start, received - sent);
+                if (timeout != null) {
+                    throw new RuntimeException(timeout);
+                }
+                if (newPos == -1) {
+                    break;
+                }
+                card = move(state, newPos);
+                afterMove(state, card, trace);
+                commitMove(event, state, card);
+            }
+        }
+        result.cpuNanos = bean.getCurrentThreadCpuTime() - cpuStart;
+        result.score = state.score;
+        result.wallNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    // 解答プログラムの標準エラー出力の転送はプロセスの終了までブロックするので、
+    // 並列実行時に枯渇しないよう共有プールではなく専用のスレッドで行う
+    private static final ExecutorService stderrReaders = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r);
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private static String command;
+    private static Class<? extends InteractiveSolver> solverClass;
     private static boolean debug;
+    private static boolean stats;
+    private static long timeLimitMillis;
+    private static long moveTimeLimitMillis;
+    private static FlushPolicy flushPolicy = FlushPolicy.LAZY;
+    private static Path traceDir;
+    // 解答プログラムの標準エラー出力を転送する上限 (バイト)。負なら制限しない
+    private static long stderrLimit = -1;
 
     static void usage() {
-        System.err.println("usage: java Tester -command \"command\" [-seed seed] [-debug]");
+        System.err.println("usage: java Tester (-command \"command\" | -solver class [-classpath path]) [-seed seed | -seeds from..to [-parallel P]] [-flush eager|lazy] [-time-limit ms] [-move-time-limit ms] [-stats] [-debug] [-trace-dir dir] [-stderr-limit bytes] [-metrics metrics_file]");
         System.exit(1);
     }
 
+    // 1 つのシードの結果。集計は結果を取り出す側でまとめて行う
+    private static class SeedOutcome {
+        String line;
+        boolean ok;
+        int score;
+    }
+
+    private static SeedOutcome executeSeed(long seed) {
+        SeedOutcome outcome = new SeedOutcome();
+        try {
+            GameResult result = new Tester().execute(seed);
+            outcome.ok = true;
+            outcome.score = result.score;
+            outcome.line = "seed:" + seed + " score:" + result.score + (stats ? " " + result.stats() : "");
+        } catch (Throwable e) {
+            // -solver の解答が投げた StackOverflowError なども、そのシードのエラーとして残りのシードを続ける
+            outcome.line = "seed:" + seed + " error:" + (e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+        return outcome;
+    }
+
+    // seed の範囲を P 並列で実行し、シードごとの得点と統計値を出力する
+    static void executeSeeds(long from, long to, int parallel) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(parallel);
+        ExecutorCompletionService<SeedOutcome> results = new ExecutorCompletionService<>(pool);
+        // 全シードを先に投入するとタスクだけでメモリを使い切るので、結果を待つのは window 件までにする
+        long window = 2L * parallel;
+        long cases = to - from + 1;
+        long submitted = 0;
+        // 平均と分散は Welford の方法で更新する
+        long count = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        double mean = 0;
+        double m2 = 0;
+        try {
+            for (long taken = 0; taken < cases; taken++) {
+                while (submitted < cases && submitted - taken < window) {
+                    long seed = from + submitted++;
+                    results.submit(() -> executeSeed(seed));
+                }
+                SeedOutcome outcome = results.take().get();
+                System.out.println(outcome.line);
+                if (!outcome.ok) continue;
+                count++;
+                min = Math.min(min, outcome.score);
+                max = Math.max(max, outcome.score);
+                double delta = outcome.score - mean;
+                mean += delta / count;
+                m2 += delta * (outcome.score - mean);
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        System.out.println("cases:" + cases + " failed:" + (cases - count));
+        if (count > 0) {
+            double stddev = Math.sqrt(m2 / count);
+            System.out.printf("mean:%.3f min:%d max:%d stddev:%.3f\n", mean, min, max, stddev);
+        }
+    }
+
+    // クラスパス (区切りは File.pathSeparator) から InteractiveSolver の実装クラスを読み込む
+    static Class<? extends InteractiveSolver> loadSolver(String className, String classpath) throws Exception {
+        ClassLoader loader = Tester.class.getClassLoader();
+        if (classpath != null) {
+            String[] paths = classpath.split(File.pathSeparator);
+            URL[] urls = new URL[paths.length];
+            for (int i = 0; i < paths.length; i++) {
+                urls[i] = new File(paths[i]).toURI().toURL();
+            }
+            loader = new URLClassLoader(urls, loader);
+        }
+        return Class.forName(className, true, loader).asSubclass(InteractiveSolver.class);
+    }
+
     public static void main(String[] args) throws Exception {
         long seed = new Random().nextInt();
+        String seeds = null;
+        int parallel = 1;
+        String solver = null;
+        String classpath = null;
         for (int i = 0; i < args.length; ++i) {
             if (args[i].equals("-seed")) {
                 seed = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-seeds")) {
+                seeds = args[++i];
+            } else if (args[i].equals("-parallel")) {
+                parallel = Integer.parseInt(args[++i]);
             } else if (args[i].equals("-command")) {
                 command = args[++i];
+            } else if (args[i].equals("-solver")) {
+                solver = args[++i];
+            } else if (args[i].equals("-classpath")) {
+                classpath = args[++i];
+            } else if (args[i].equals("-flush")) {
+                flushPolicy = FlushPolicy.valueOf(args[++i].toUpperCase());
+            } else if (args[i].equals("-time-limit")) {
+                timeLimitMillis = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-move-time-limit")) {
+                moveTimeLimitMillis = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-stats")) {
+                stats = true;
             } else if (args[i].equals("-debug")) {
                 debug = true;
+            } else if (args[i].equals("-trace-dir")) {
+                traceDir = Paths.get(args[++i]);
+            } else if (args[i].equals("-stderr-limit")) {
+                stderrLimit = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-metrics")) {
+                Metrics.writeAtExit(Paths.get(args[++i]));
             } else {
                 System.err.println("unknown option:" + args[i]);
                 usage();
             }
         }
-        if (command == null) {
+        if ((command == null) == (solver == null) || parallel < 1) {
             usage();
         }
+        if (solver != null) {
+            solverClass = loadSolver(solver, classpath);
+        }
+        if (traceDir != null) {
+            Files.createDirectories(traceDir);
+        }
+        if (seeds != null) {
+            String[] range = seeds.split("\\.\\.");
+            if (range.length != 2) usage();
+            long from = Long.parseLong(range[0]);
+            long to = Long.parseLong(range[1]);
+            if (from > to) usage();
+            // シードの数が long に収まらない範囲 (to - from + 1 の桁あふれ) は受け付けない
+            if (to - from + 1 <= 0) {
+                System.err.println("-seeds の範囲が広すぎます");
+                usage();
+            }
+            executeSeeds(from, to, parallel);
+            return;
+        }
         Tester tester = new Tester();
-        int score = tester.execute(seed);
-        System.out.println("score:" + score);
+        GameResult result = tester.execute(seed);
+        System.out.println("score:" + result.score);
+        if (stats) {
+            System.out.println(result.stats());
+        }
     }
 
 }
@@ -0,0 +1,198 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// 1 手ごとの記録 (位置・カード・移動距離・得点と、表になっているカード) を固定長のリングバッファに積み、
+// 専用のスレッドが文字列を作らずにバイト列へ整形して書き出す。
+// ゲームを進めるスレッドは配列に値を書くだけで、書き出し先が遅くても待たされない (バッファが一杯のときだけ空くのを待つ)。
+// 書き出し先は、1 手 1 行の CSV と、-debug の形式のテキストのどちらか、または両方。
+class TraceLog implements Closeable {
+    static final int N = Tester.N;
+    static final String CSV_HEADER = "move,position,card,total_distance,score\n";
+    // リングバッファに入る手数 (2 の冪)
+    private static final int CAPACITY = 1 << 10;
+    // 1 手の記録の大きさ: 手数, 位置, カード, 移動距離, 得点, 表になっているカード N 枚
+    private static final int SLOT = 5 + N;
+    // 記録がないとき・バッファが一杯のときに待つ時間 (ns)
+    private static final long PARK_NANOS = 50_000;
+
+    private final int[] ring = new int[CAPACITY * SLOT];
+    // 積んだ手数と書き出した手数。積むスレッドと書き出すスレッドは 1 つずつなので、それぞれ自分の値だけを更新する
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final Sink csv;
+    private final Sink text;
+    private final Thread writer;
+    private volatile boolean closed;
+    private volatile IOException failure;
+    private int moves;
+
+    // csv, text は書き出さない場合は null。close() は csv を閉じるが text は閉じない
+    TraceLog(OutputStream csv, OutputStream text) throws IOException {
+        this.csv = csv != null ? new Sink(csv) : null;
+        this.text = text != null ? new Sink(text) : null;
+        if (this.csv != null) {
+            this.csv.writeAscii(CSV_HEADER);
+        }
+        writer = new Thread(this::drain, "TraceLog");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // state.moveAndRead でめくった card を記録する
+    void record(Tester.State state, int card) {
+        long h = head.get();
+        while (h - tail.get() == CAPACITY) {
+            if (failure != null || !writer.isAlive()) return;
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        int base = (int) (h & (CAPACITY - 1)) * SLOT;
+        ring[base] = ++moves;
+        ring[base + 1] = state.pos;
+        ring[base + 2] = card;
+        ring[base + 3] = state.totalDist;
+        ring[base + 4] = state.score;
+        if (text != null) {
+            System.arraycopy(state.cards, 0, ring, base + 5, N);
+        }
+        head.lazySet(h + 1);
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                long t = tail.get();
+                long h = head.get();
+                if (t == h) {
+                    // closed を見た後の head は最後の記録まで含んでいる
+                    if (closed && head.get() == t) break;
+                    flush();
+                    LockSupport.parkNanos(PARK_NANOS);
+                    continue;
+                }
+                for (; t < h; t++) {
+                    format((int) (t & (CAPACITY - 1)) * SLOT);
+                    tail.lazySet(t + 1);
+                }
+            }
+            flush();
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    private void format(int base) throws IOException {
+        int move = ring[base];
+        int pos = ring[base + 1];
+        int card = ring[base + 2];
+        int totalDist = ring[base + 3];
+        int score = ring[base + 4];
+        if (csv != null) {
+            csv.writeInt(move, 0);
+            csv.write(',');
+            csv.writeInt(pos, 0);
+            csv.write(',');
+            csv.writeInt(card, 0);
+            csv.write(',');
+            csv.writeInt(totalDist, 0);
+            csv.write(',');
+            csv.writeInt(score, 0);
+            csv.write('\n');
+        }
+        if (text != null) {
+            // Tester の以前の -debug 出力と同じ形式
+            text.writeAscii("total distance:");
+            text.writeInt(totalDist, 4);
+            text.writeAscii(" score:");
+            text.writeInt(score, 4);
+            text.writeAscii(" position:");
+            text.writeInt(pos, 2);
+            text.writeAscii(" card:");
+            text.writeInt(card, 2);
+            text.write('\n');
+            for (int i = 0; i < N; i++) {
+                text.write(i == pos ? '[' : i == pos + 1 ? ']' : ' ');
+                int c = ring[base + 5 + i];
+                if (c == Tester.State.UNKNOWN) {
+                    text.writeAscii("??");
+                } else {
+                    text.writeInt(c, 2);
+                }
+            }
+            text.write(pos == N - 1 ? ']' : ' ');
+            text.writeAscii("\n\n");
+        }
+    }
+
+    private void flush() throws IOException {
+        if (csv != null) csv.flush();
+        if (text != null) text.flush();
+    }
+
+    // 書き出しが終わるのを待ち、CSV の出力先を閉じる。書き出し中のエラーはここで投げる
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (csv != null) csv.out.close();
+        }
+        if (failure != null) throw failure;
+    }
+
+    // ASCII のバイト列を貯めて書き出す
+    private static class Sink {
+        final OutputStream out;
+        private final byte[] buf = new byte[1 << 14];
+        private int size;
+
+        Sink(OutputStream out) {
+            this.out = out;
+        }
+
+        void write(int b) throws IOException {
+            if (size == buf.length) flushBuffer();
+            buf[size++] = (byte) b;
+        }
+
+        void writeAscii(String s) throws IOException {
+            for (int i = 0; i < s.length(); i++) {
+                write(s.charAt(i));
+            }
+        }
+
+        // 幅 width に右寄せした 10 進数 (String.format("%" + width + "d") と同じ)
+        void writeInt(int v, int width) throws IOException {
+            if (buf.length - size < Math.max(width, 11)) flushBuffer();
+            long x = Math.abs((long) v);
+            int digits = 1;
+            for (long p = 10; p <= x; p *= 10) digits++;
+            int len = digits + (v < 0 ? 1 : 0);
+            for (int i = len; i < width; i++) {
+                buf[size++] = ' ';
+            }
+            if (v < 0) buf[size++] = '-';
+            size += digits;
+            for (int i = size - 1; i >= size - digits; i--) {
+                buf[i] = (byte) ('0' + x % 10);
+                x /= 10;
+            }
+        }
+
+        private void flushBuffer() throws IOException {
+            out.write(buf, 0, size);
+            size = 0;
+        }
+
+        void flush() throws IOException {
+            if (size == 0) return;
+            flushBuffer();
+            out.flush();
+        }
+    }
+}
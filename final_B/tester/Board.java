@@ -0,0 +1,105 @@
+// TestCase.C を 1 次元の byte 配列 (r * N + c) で持つ盤面。
+// 回転はマスを入れ替えるだけで、正しい色になっているマスの数は countMatches で数える。
+// 回転のたびに数を更新すると回転が TestCase.rotateClockwise の 2 倍以上遅くなり、最後に 1 度数えれば済むジャッジと
+// テストケースの生成では損になるため。回転ごとの数や Zobrist ハッシュ、取り消しが要る探索では SearchBoard を使う
+class Board {
+    final int N;
+    final byte[] cells;
+    // 各マスの正しい色
+    final byte[] target;
+
+    Board(TestCase testcase) {
+        N = testcase.N;
+        cells = new byte[N * N];
+        target = new byte[N * N];
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < N; j++) {
+                cells[i * N + j] = (byte) testcase.C[i][j];
+                target[i * N + j] = (byte) testcase.color(i, j);
+            }
+        }
+    }
+
+    int get(int r, int c) {
+        return cells[r * N + c];
+    }
+
+    void copyTo(int[][] C) {
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < N; j++) {
+                C[i][j] = cells[i * N + j];
+            }
+        }
+    }
+
+    int match(int p) {
+        return cells[p] == target[p] ? 1 : 0;
+    }
+
+    // 正しい色になっているマスの数
+    int countMatches() {
+        int count = 0;
+        for (int p = 0; p < N * N; p++) {
+            count += match(p);
+        }
+        return count;
+    }
+
+    // (r, c) を左上とする一辺 size の正方形の中で、正しい色になっているマスの数
+    int countMatches(int r, int c, int size) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int p = (r + i) * N + c;
+            for (int j = 0; j < size; j++) {
+                count += match(p + j);
+            }
+        }
+        return count;
+    }
+
+    // TestCase.rotateClockwise と同じ回転。4 マスずつ巡回させ、添字は差分で進める
+    void rotateClockwise(int r, int c, int size) {
+        int base = r * N + c;
+        int last = size - 1;
+        for (int i = 0; i < size / 2; i++) {
+            int p0 = base + i * N;
+            int p1 = base + last * N + i;
+            int p2 = base + (last - i) * N + last;
+            int p3 = base + last - i;
+            for (int j = 0; j < (size + 1) / 2; j++) {
+                byte first = cells[p0];
+                cells[p0] = cells[p1];
+                cells[p1] = cells[p2];
+                cells[p2] = cells[p3];
+                cells[p3] = first;
+                p0 += 1;
+                p1 -= N;
+                p2 -= 1;
+                p3 += N;
+            }
+        }
+    }
+
+    // TestCase.rotateCounterClockwise と同じ回転
+    void rotateCounterClockwise(int r, int c, int size) {
+        int base = r * N + c;
+        int last = size - 1;
+        for (int i = 0; i < size / 2; i++) {
+            int p0 = base + i * N;
+            int p1 = base + last * N + i;
+            int p2 = base + (last - i) * N + last;
+            int p3 = base + last - i;
+            for (int j = 0; j < (size + 1) / 2; j++) {
+                byte first = cells[p0];
+                cells[p0] = cells[p3];
+                cells[p3] = cells[p2];
+                cells[p2] = cells[p1];
+                cells[p1] = first;
+                p0 += 1;
+                p1 -= N;
+                p2 -= 1;
+                p3 += N;
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+// 連続するシード値のテストケースを 1 つのバイナリファイルにまとめたもの。
+// 形式 (ビッグエンディアン):
+//   "RCOC", バージョン (int), 件数 n (int), 最初のシード値 (long),
+//   各テストケースの開始位置 (long, n + 1 個。最後はファイルの末尾), 各テストケース (TestCase.writeTo)
+// ファイルはメモリマップして読むので、テキストを解析せずに番号を指定して 1 件ずつ取り出せる。
+class Corpus {
+    static final byte[] MAGIC = {'R', 'C', 'O', 'C'};
+    static final int VERSION = 1;
+    private static final int CHUNK = 1024;
+    // ファイル全体を 1 つの ByteBuffer にマップするので、2GB を超えるファイルは作らない
+    static final long MAX_SIZE = Integer.MAX_VALUE;
+    static final int MAX_COUNT = (Integer.MAX_VALUE - headerSize(1)) / 8;
+
+    private final ByteBuffer buf;
+    private final int count;
+    private final long firstSeed;
+
+    private Corpus(ByteBuffer buf) {
+        this.buf = buf;
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buf.get(i) != MAGIC[i]) throw new IllegalArgumentException("not a corpus file");
+        }
+        if (buf.getInt(4) != VERSION) throw new IllegalArgumentException("unsupported corpus version " + buf.getInt(4));
+        count = buf.getInt(8);
+        firstSeed = buf.getLong(12);
+    }
+
+    // 2GB を超えるファイルは扱えない
+    static Corpus open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > MAX_SIZE) throw new IOException(path + ": corpus larger than 2GB");
+            return new Corpus(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    int size() {
+        return count;
+    }
+
+    long seed(int index) {
+        return firstSeed + index;
+    }
+
+    // 複数のスレッドから同時に呼び出してよい
+    TestCase get(int index) {
+        if (index < 0 || count <= index) throw new IndexOutOfBoundsException("index " + index + " out of " + count);
+        int offset = Math.toIntExact(buf.getLong(headerSize(0) + 8 * index));
+        return new TestCase(buf.duplicate().position(offset));
+    }
+
+    private static int headerSize(int count) {
+        return MAGIC.length + 4 + 4 + 8 + 8 * count;
+    }
+
+    private static byte[] encode(long seed) {
+        try {
+            TestCase testcase = new TestCase(seed);
+            ByteBuffer record = ByteBuffer.allocate(testcase.binarySize());
+            testcase.writeTo(record);
+            return record.array();
+        } catch (Exception e) {
+            throw new RuntimeException("seed " + seed + ": " + e.getMessage(), e);
+        }
+    }
+
+    // シード値 from から to (両端を含む) のテストケースを parallel 並列で生成して書き出す
+    static void generate(long from, long to, Path path, int parallel) throws Exception {
+        // to - from + 1 が long で桁あふれする場合も含めて、件数が int に収まらない範囲は断る
+        if (to - from < 0 || to - from >= MAX_COUNT) throw new IllegalArgumentException("too many seeds (up to " + MAX_COUNT + ")");
+        int count = (int) (to - from + 1);
+        int headerSize = headerSize(count + 1);
+        long[] offsets = new long[count + 1];
+        long position = headerSize;
+        ForkJoinPool pool = new ForkJoinPool(parallel);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (int base = 0; base < count; base += CHUNK) {
+                int first = base;
+                int size = Math.min(CHUNK, count - base);
+                byte[][] records = pool.submit(() -> IntStream.range(0, size).parallel()
+                        .mapToObj(i -> encode(from + first + i))
+                        .toArray(byte[][]::new)).get();
+                long total = 0;
+                for (byte[] record : records) {
+                    total += record.length;
+                }
+                if (position + total > MAX_SIZE) {
+                    throw new IllegalArgumentException("corpus would exceed 2GB at seed " + (from + first));
+                }
+                ByteBuffer chunk = ByteBuffer.allocate((int) total);
+                for (int i = 0; i < size; i++) {
+                    offsets[first + i] = position + chunk.position();
+                    chunk.put(records[i]);
+                }
+                chunk.flip();
+                long at = position;
+                while (chunk.hasRemaining()) {
+                    at += channel.write(chunk, at);
+                }
+                position += total;
+            }
+            offsets[count] = position;
+            ByteBuffer header = ByteBuffer.allocate(headerSize);
+            header.put(MAGIC).putInt(VERSION).putInt(count).putLong(from);
+            for (long offset : offsets) {
+                header.putLong(offset);
+            }
+            header.flip();
+            long at = 0;
+            while (header.hasRemaining()) {
+                at += channel.write(header, at);
+            }
+        } catch (Exception e) {
+            // 途中までしか書かれていないファイルを残さない
+            Files.deleteIfExists(path);
+            throw e;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    static void usage() {
+        System.err.println("usage: java Corpus -seeds from..to -out corpus_file [-parallel P]");
+        System.err.println("       java Corpus -export corpus_file index");
+        System.exit(1);
+    }
+
+    public static void main(String[] args) throws Exception {
+        String seeds = null;
+        Path out = null;
+        Path export = null;
+        int index = -1;
+        int parallel = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; ++i) {
+            if (args[i].equals("-seeds")) {
+                seeds = args[++i];
+            } else if (args[i].equals("-out")) {
+                out = Paths.get(args[++i]);
+            } else if (args[i].equals("-parallel")) {
+                parallel = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-export")) {
+                export = Paths.get(args[++i]);
+                index = Integer.parseInt(args[++i]);
+            } else {
+                System.err.println("unknown option:" + args[i]);
+                usage();
+            }
+        }
+        if (export != null) {
+            // Generator と同じテキスト形式で書き出す
+            System.out.print(Corpus.open(export).get(index));
+            return;
+        }
+        if (seeds == null || out == null || parallel < 1) {
+            usage();
+        }
+        String[] range = seeds.split("\\.\\.");
+        if (range.length != 2) usage();
+        long from = Long.parseLong(range[0]);
+        long to = Long.parseLong(range[1]);
+        if (from > to) usage();
+        generate(from, to, out, parallel);
+    }
+}
@@ -0,0 +1,64 @@
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Java Flight Recorder のイベント。記録していないときは commit しても何もしない。
+// java -XX:StartFlightRecording=filename=rec.jfr Judge ... で記録し、jfr print --events 'rcoc.*' rec.jfr で見られる
+class Events {
+    @Name("rcoc.final_B.Score")
+    @Label("Judge.score")
+    @Category({"RCOC", "final_B"})
+    static class Score extends Event {
+        @Label("Score")
+        int score;
+    }
+
+    @Name("rcoc.final_B.Parse")
+    @Label("Parse")
+    @Category({"RCOC", "final_B"})
+    static class Parse extends Event {
+        @Label("Operations")
+        int operations;
+    }
+
+    @Name("rcoc.final_B.Simulate")
+    @Label("Simulate")
+    @Category({"RCOC", "final_B"})
+    static class Simulate extends Event {
+        @Label("Operations")
+        int operations;
+        // 回転したマスの数 (各回転の size * size) の合計
+        @Label("Cells")
+        long cells;
+        @Label("Matches")
+        int matches;
+    }
+
+    @Name("rcoc.final_B.Rotate")
+    @Label("Rotate")
+    @Category({"RCOC", "final_B"})
+    @StackTrace(false)
+    static class Rotate extends Event {
+        @Label("Row")
+        int row;
+        @Label("Column")
+        int column;
+        @Label("Size")
+        int size;
+        // 正しい色になっているマスの数の変化
+        @Label("Matches Delta")
+        int matchesDelta;
+    }
+
+    @Name("rcoc.final_B.Generate")
+    @Label("TestCase(seed)")
+    @Category({"RCOC", "final_B"})
+    static class Generate extends Event {
+        @Label("Seed")
+        long seed;
+        @Label("Rotations")
+        int rotations;
+    }
+}
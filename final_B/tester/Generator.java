@@ -1,3 +1,4 @@
+import java.nio.file.Paths;
 import java.util.Random;
 
 public class Generator {
@@ -7,6 +8,8 @@ public class Generator {
         for (int i = 0; i < args.length; ++i) {
             if (args[i].equals("-seed")) {
                 seed = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-metrics")) {
+                Metrics.writeAtExit(Paths.get(args[++i]));
             }
         }
         TestCase testcase = new TestCase(seed);
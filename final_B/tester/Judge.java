@@ -1,38 +1,47 @@
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
 import java.util.Scanner;
 
 public class Judge {
 
+    // 得点計算の規則を変えたら変える。ScoreCache のキーに含まれる
+    static final String VERSION = "final_B-1";
+
     static class Output {
-        ArrayList<TestCase.SubSquare> squares = new ArrayList<>();
+        // 操作の数と、各操作で回転する正方形
+        int size;
+        int[] r;
+        int[] c;
+        int[] s;
 
-        Output(Scanner sc, TestCase testcase) {
-            int lineno = 0;
-            while (sc.hasNextLine() && squares.size() < testcase.M) {
-                lineno++;
-                String line = sc.nextLine();
-                String line_trimmed = line.trim();
-                if (line_trimmed.isEmpty()) break;
-                String[] elems = line_trimmed.split("\\s+");
-                if (elems.length != 3) {
-                    throw new RuntimeException("line " + lineno + " 不正な出力です:" + line);
+        Output(OutputTokenizer tokenizer, TestCase testcase) {
+            r = new int[testcase.M];
+            c = new int[testcase.M];
+            s = new int[testcase.M];
+            while (tokenizer.hasNextLine() && size < testcase.M) {
+                tokenizer.nextLine();
+                int lineno = tokenizer.lineNumber();
+                if (tokenizer.tokenCount() == 0) break;
+                if (tokenizer.tokenCount() != 3) {
+                    throw new RuntimeException("line " + lineno + " 不正な出力です:" + tokenizer.line());
                 }
-                int rv = Integer.parseInt(elems[0]);
-                int cv = Integer.parseInt(elems[1]);
-                int sv = Integer.parseInt(elems[2]);
+                int rv = tokenizer.intToken(0);
+                int cv = tokenizer.intToken(1);
+                int sv = tokenizer.intToken(2);
                 if (sv < 1 || rv < 0 || testcase.N < rv + sv || cv < 0 || testcase.N < cv + sv) {
-                    throw new RuntimeException("line " + lineno + " 不正な出力です:" + line);
+                    throw new RuntimeException("line " + lineno + " 不正な出力です:" + tokenizer.line());
                 }
-                squares.add(new TestCase.SubSquare(rv, cv, sv));
+                r[size] = rv;
+                c[size] = cv;
+                s[size] = sv;
+                size++;
             }
-            while (sc.hasNextLine()) {
-                lineno++;
-                String line = sc.nextLine();
-                String line_trimmed = line.trim();
-                if (line_trimmed.isEmpty()) continue;
-                if (squares.size() < testcase.M) {
+            while (tokenizer.hasNextLine()) {
+                tokenizer.nextLine();
+                int lineno = tokenizer.lineNumber();
+                if (tokenizer.tokenCount() == 0) continue;
+                if (size < testcase.M) {
                     throw new RuntimeException("line " + lineno + " 空行の後に出力があります");
                 } else {
                     throw new RuntimeException(testcase.M + "回より多い操作を行おうとしました");
@@ -43,35 +52,131 @@ public class Judge {
     }
 
     static int calcScore(TestCase testcase, Output output) {
-        for (int i = 0; i < output.squares.size(); i++) {
-            TestCase.SubSquare sq = output.squares.get(i);
-            int cr = sq.r;
-            int cc = sq.c;
-            int cs = sq.size;
-            testcase.rotateClockwise(sq);
+        return calcScore(testcase, output, null);
+    }
+
+    // trace が null でなければ、各回転と、それによる正しい色のマスの数の変化を書き出す
+    static int calcScore(TestCase testcase, Output output, TraceWriter trace) {
+        Events.Simulate event = new Events.Simulate();
+        event.begin();
+        long start = System.nanoTime();
+        long cells = 0;
+        Board board = new Board(testcase);
+        // 回転ごとの正しい色のマスの数の変化は、トレースか JFR の Rotate イベントを記録するときだけ、回転した正方形の中を数え直して求める
+        boolean perRotation = trace != null || new Events.Rotate().isEnabled();
+        if (trace != null) {
+            trace.writeVarint(testcase.N);
+            trace.writeVarint(output.size);
+            for (int i = 0; i < testcase.N; i++) {
+                for (int j = 0; j < testcase.N; j++) {
+                    trace.writeVarint(testcase.C[i][j]);
+                }
+            }
         }
-        int score = 0;
-        for (int i = 0; i < testcase.N; i++) {
-            for (int j = 0; j < testcase.N; j++) {
-                if (testcase.C[i][j] == testcase.color(i, j)) ++score;
+        for (int i = 0; i < output.size; i++) {
+            Events.Rotate rotate = new Events.Rotate();
+            rotate.begin();
+            int before = perRotation ? board.countMatches(output.r[i], output.c[i], output.s[i]) : 0;
+            board.rotateClockwise(output.r[i], output.c[i], output.s[i]);
+            int delta = perRotation ? board.countMatches(output.r[i], output.c[i], output.s[i]) - before : 0;
+            if (rotate.shouldCommit()) {
+                rotate.row = output.r[i];
+                rotate.column = output.c[i];
+                rotate.size = output.s[i];
+                rotate.matchesDelta = delta;
+                rotate.commit();
+            }
+            Metrics.record("rotate.size", output.s[i]);
+            cells += output.s[i] * output.s[i];
+            if (trace != null) {
+                trace.writeVarint(output.r[i]);
+                trace.writeVarint(output.c[i]);
+                trace.writeVarint(output.s[i]);
+                trace.writeSigned(delta);
             }
         }
+        board.copyTo(testcase.C);
+        int matches = board.countMatches();
+        int score = matches;
         if (score == testcase.N * testcase.N) {
-            score += testcase.M - output.squares.size();
+            score += testcase.M - output.size;
+        }
+        if (trace != null) trace.writeVarint(score);
+        event.operations = output.size;
+        event.cells = cells;
+        event.matches = matches;
+        event.commit();
+        Metrics.time("judge.simulate_ns", start);
+        Metrics.count("judge.operations", output.size);
+        Metrics.count("rotate.cells", cells);
+        return score;
+    }
+
+    static int score(Path inputFile, Path outputFile) throws IOException {
+        return score(inputFile, outputFile, null);
+    }
+
+    // traceFile が null でなければ、得点計算の過程をそのファイルに書き出す
+    static int score(Path inputFile, Path outputFile, Path traceFile) throws IOException {
+        Events.Score event = new Events.Score();
+        event.begin();
+        long start = System.nanoTime();
+        Events.Parse parse = new Events.Parse();
+        parse.begin();
+        TestCase testcase;
+        try (Scanner sc = new Scanner(inputFile)) {
+            testcase = new TestCase(sc);
+        }
+        Output output = new Output(OutputTokenizer.open(outputFile), testcase);
+        parse.operations = output.size;
+        parse.commit();
+        Metrics.time("judge.parse_ns", start);
+        int score;
+        if (traceFile == null) {
+            score = calcScore(testcase, output);
+        } else {
+            try (TraceWriter trace = new TraceWriter(traceFile)) {
+                score = calcScore(testcase, output, trace);
+            }
         }
+        event.score = score;
+        event.commit();
+        Metrics.time("judge.total_ns", start);
+        Metrics.record("judge.score", score);
+        Metrics.count("judge.cases", 1);
         return score;
     }
 
     public static void main(String[] args) throws Exception {
         if (args.length < 2) {
-            System.err.println("usage: java Judge input_file_path output_file_path");
+            System.err.println("usage: java Judge input_file_path output_file_path [-trace trace_file_path] [-cache cache_dir] [-cache-size N] [-metrics metrics_file]");
             System.exit(1);
         }
         Path inputFile = Paths.get(args[0]);
         Path outputFile = Paths.get(args[1]);
-        TestCase testcase = new TestCase(new Scanner(inputFile));
-        Output output = new Output(new Scanner(outputFile), testcase);
-        int score = calcScore(testcase, output);
+        Path traceFile = null;
+        Path cacheDir = null;
+        int cacheSize = ScoreCache.DEFAULT_CAPACITY;
+        for (int i = 2; i < args.length; ++i) {
+            if (args[i].equals("-trace")) {
+                traceFile = Paths.get(args[++i]);
+            } else if (args[i].equals("-cache")) {
+                cacheDir = Paths.get(args[++i]);
+            } else if (args[i].equals("-cache-size")) {
+                cacheSize = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-metrics")) {
+                Metrics.writeAtExit(Paths.get(args[++i]));
+            }
+        }
+        int score;
+        // トレースを書き出すときは計算し直す
+        if (cacheDir != null && traceFile == null) {
+            try (ScoreCache cache = new ScoreCache(cacheDir, VERSION, cacheSize)) {
+                score = cache.score(inputFile, outputFile, Judge::score);
+            }
+        } else {
+            score = score(inputFile, outputFile, traceFile);
+        }
         System.out.println("score:" + score);
     }
 }
@@ -0,0 +1,136 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// 処理の回数 (カウンタ) と、所要時間や大きさの分布 (ヒストグラム) を集め、終了時に JSON で書き出す。
+// writeAtExit を呼ぶまでは何も集めないので、呼ばなければ各所の count / record はほぼ何もしない
+class Metrics {
+    private static volatile boolean enabled;
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    // 2 の冪ごとの区間を 16 等分したバケットで数えるヒストグラム。パーセンタイルの相対誤差は 1/16 以下
+    static class Histogram {
+        private static final int SUB_BITS = 4;
+        private final long[] counts = new long[64 << SUB_BITS];
+        long count;
+        long sum;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+
+        private static int index(long v) {
+            if (v < (1 << SUB_BITS)) return (int) v;
+            int e = 63 - Long.numberOfLeadingZeros(v);
+            int sub = (int) (v >>> (e - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+            return ((e - SUB_BITS + 1) << SUB_BITS) + sub;
+        }
+
+        // バケットに含まれる値の上限
+        private static long upperBound(int index) {
+            if (index < (1 << SUB_BITS)) return index;
+            int e = (index >>> SUB_BITS) + SUB_BITS - 1;
+            long lower = (long) ((1 << SUB_BITS) + (index & ((1 << SUB_BITS) - 1))) << (e - SUB_BITS);
+            return lower + (1L << (e - SUB_BITS)) - 1;
+        }
+
+        // 負の値は 0 として数える
+        synchronized void record(long v) {
+            v = Math.max(0, v);
+            counts[index(v)]++;
+            count++;
+            sum += v;
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+
+        synchronized long percentile(double p) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(count * p));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(upperBound(i), max);
+            }
+            return max;
+        }
+
+        // {"count":..,"sum":..,"min":..,"max":..,"mean":..,"p50":..,"p90":..,"p99":..,"buckets":[[上限,件数],...]}
+        synchronized String toJson() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("{\"count\":").append(count).append(",\"sum\":").append(sum);
+            if (count > 0) {
+                sb.append(",\"min\":").append(min).append(",\"max\":").append(max);
+                sb.append(",\"mean\":").append(String.format(Locale.ROOT, "%.3f", (double) sum / count));
+                sb.append(",\"p50\":").append(percentile(0.5));
+                sb.append(",\"p90\":").append(percentile(0.9));
+                sb.append(",\"p99\":").append(percentile(0.99));
+            }
+            sb.append(",\"buckets\":[");
+            boolean first = true;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) continue;
+                if (!first) sb.append(',');
+                first = false;
+                sb.append('[').append(upperBound(i)).append(',').append(counts[i]).append(']');
+            }
+            return sb.append("]}").toString();
+        }
+    }
+
+    static boolean enabled() {
+        return enabled;
+    }
+
+    static void count(String name, long delta) {
+        if (!enabled) return;
+        counters.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+    }
+
+    static void record(String name, long value) {
+        if (!enabled) return;
+        histograms.computeIfAbsent(name, k -> new Histogram()).record(value);
+    }
+
+    // System.nanoTime() で測った start からの経過時間 (ns) を記録する
+    static void time(String name, long start) {
+        if (!enabled) return;
+        record(name, System.nanoTime() - start);
+    }
+
+    // 集計を始め、JVM の終了時に file へ書き出す
+    static void writeAtExit(Path file) {
+        enabled = true;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                Files.write(file, toJson().getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }));
+    }
+
+    // {"counters":{名前:値,...},"histograms":{名前:{...},...}}。名前の順に並べる
+    static String toJson() {
+        StringBuilder sb = new StringBuilder("{\"counters\":{");
+        boolean first = true;
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(counters).entrySet()) {
+            if (!first) sb.append(',');
+            first = false;
+            sb.append('"').append(entry.getKey()).append("\":").append(entry.getValue().sum());
+        }
+        sb.append("},\"histograms\":{");
+        first = true;
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+            if (!first) sb.append(',');
+            first = false;
+            sb.append('"').append(entry.getKey()).append("\":").append(entry.getValue().toJson());
+        }
+        return sb.append("}}\n").toString();
+    }
+}
@@ -0,0 +1,149 @@
+import java.util.Arrays;
+
+// 探索用の盤面。回転のたびに、正しい色になっているマスの数 (matches) と盤面の Zobrist ハッシュ (hash) を回転した範囲だけ見て更新する。
+// mark を呼んだ後の回転は記録され、undo で逆向きに回転して盤面をコピーせずに元に戻せる。
+// ジャッジとテストケースの生成は回転ごとの数もハッシュも使わないので Board を使い、この分の計算をしない
+class SearchBoard extends Board {
+    private static final int COLORS = 4;
+    private static final long ZOBRIST_SEED = 0x9E3779B97F4A7C15L;
+    // マス p が色 k のときの乱数 (COLORS * p + k)。N によらず同じ並びなので、同じ盤面は常に同じハッシュになる
+    private static long[] zobrist = new long[0];
+
+    private final long[] keys;
+    int matches;
+    long hash;
+    // mark 以降に行った回転の記録。r | c << 8 | size << 16 | 向き << 24 を 1 つの int に詰める
+    private boolean recording;
+    private int[] log = new int[16];
+    private int logSize;
+
+    SearchBoard(TestCase testcase) {
+        super(testcase);
+        if (N > 255) throw new IllegalArgumentException("N = " + N + " is too large for SearchBoard");
+        matches = countMatches();
+        keys = zobristKeys(N * N);
+        for (int p = 0; p < N * N; p++) {
+            hash ^= key(p);
+        }
+    }
+
+    private static synchronized long[] zobristKeys(int cellCount) {
+        if (zobrist.length < COLORS * cellCount) {
+            TestCase.XorShift rnd = new TestCase.XorShift();
+            rnd.setSeed(ZOBRIST_SEED);
+            long[] keys = new long[COLORS * cellCount];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = rnd.next();
+            }
+            zobrist = keys;
+        }
+        return zobrist;
+    }
+
+    private long key(int p) {
+        return keys[COLORS * p + cells[p]];
+    }
+
+    @Override
+    void rotateClockwise(int r, int c, int size) {
+        record(r, c, size, 0);
+        turnClockwise(r, c, size);
+    }
+
+    @Override
+    void rotateCounterClockwise(int r, int c, int size) {
+        record(r, c, size, 1);
+        turnCounterClockwise(r, c, size);
+    }
+
+    private void turnClockwise(int r, int c, int size) {
+        int base = r * N + c;
+        int last = size - 1;
+        for (int i = 0; i < size / 2; i++) {
+            int p0 = base + i * N;
+            int p1 = base + last * N + i;
+            int p2 = base + (last - i) * N + last;
+            int p3 = base + last - i;
+            for (int j = 0; j < (size + 1) / 2; j++) {
+                int before = match(p0) + match(p1) + match(p2) + match(p3);
+                long h = key(p0) ^ key(p1) ^ key(p2) ^ key(p3);
+                byte first = cells[p0];
+                cells[p0] = cells[p1];
+                cells[p1] = cells[p2];
+                cells[p2] = cells[p3];
+                cells[p3] = first;
+                matches += match(p0) + match(p1) + match(p2) + match(p3) - before;
+                hash ^= h ^ key(p0) ^ key(p1) ^ key(p2) ^ key(p3);
+                p0 += 1;
+                p1 -= N;
+                p2 -= 1;
+                p3 += N;
+            }
+        }
+    }
+
+    private void turnCounterClockwise(int r, int c, int size) {
+        int base = r * N + c;
+        int last = size - 1;
+        for (int i = 0; i < size / 2; i++) {
+            int p0 = base + i * N;
+            int p1 = base + last * N + i;
+            int p2 = base + (last - i) * N + last;
+            int p3 = base + last - i;
+            for (int j = 0; j < (size + 1) / 2; j++) {
+                int before = match(p0) + match(p1) + match(p2) + match(p3);
+                long h = key(p0) ^ key(p1) ^ key(p2) ^ key(p3);
+                byte first = cells[p0];
+                cells[p0] = cells[p3];
+                cells[p3] = cells[p2];
+                cells[p2] = cells[p1];
+                cells[p1] = first;
+                matches += match(p0) + match(p1) + match(p2) + match(p3) - before;
+                hash ^= h ^ key(p0) ^ key(p1) ^ key(p2) ^ key(p3);
+                p0 += 1;
+                p1 -= N;
+                p2 -= 1;
+                p3 += N;
+            }
+        }
+    }
+
+    private void record(int r, int c, int size, int direction) {
+        if (!recording) return;
+        if (logSize == log.length) log = Arrays.copyOf(log, logSize * 2);
+        log[logSize++] = r | c << 8 | size << 16 | direction << 24;
+    }
+
+    // 回転の記録を始め (すでに始めていればそのまま)、記録した回転の数を返す。undoTo に渡すとこの時点の盤面に戻せる
+    int mark() {
+        recording = true;
+        return logSize;
+    }
+
+    // 最後の回転を逆向きの回転で取り消す
+    void undo() {
+        int e = log[--logSize];
+        int r = e & 0xff;
+        int c = e >>> 8 & 0xff;
+        int size = e >>> 16 & 0xff;
+        if (e >>> 24 == 0) {
+            turnCounterClockwise(r, c, size);
+        } else {
+            turnClockwise(r, c, size);
+        }
+    }
+
+    // mark() が mark を返した時点まで回転を取り消す
+    void undoTo(int mark) {
+        if (mark < 0 || logSize < mark) throw new IllegalArgumentException("invalid mark " + mark);
+        while (logSize > mark) {
+            undo();
+        }
+    }
+
+    // 回転の記録を捨て、次に mark を呼ぶまで記録をやめる
+    void clearLog() {
+        recording = false;
+        logSize = 0;
+    }
+}
@@ -1,3 +1,4 @@
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Scanner;
 
@@ -36,6 +37,9 @@ public class TestCase {
     }
 
     TestCase(long seed) throws Exception {
+        Events.Generate event = new Events.Generate();
+        event.begin();
+        long start = System.nanoTime();
         rnd = new XorShift();
         rnd.setSeed(seed);
         this.N = N_FIXED;
@@ -54,10 +58,17 @@ public class TestCase {
                 }
             }
         }
+        Board board = new Board(this);
         for (int i = 0; i < MIX; i++) {
             SubSquare sq = squares.get(rnd.nextInt(squares.size()));
-            rotateCounterClockwise(sq);
+            board.rotateCounterClockwise(sq.r, sq.c, sq.size);
         }
+        board.copyTo(C);
+        event.seed = seed;
+        event.rotations = MIX;
+        event.commit();
+        Metrics.time("generate.total_ns", start);
+        Metrics.count("generate.cases", 1);
     }
 
     TestCase(Scanner sc) {
@@ -71,6 +82,32 @@ public class TestCase {
         }
     }
 
+    // Corpus から読む。N, M (int) と各マスの値 (byte) が続く
+    TestCase(ByteBuffer buf) {
+        this.N = buf.getInt();
+        this.M = buf.getInt();
+        this.C = new int[N][N];
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < N; j++) {
+                this.C[i][j] = buf.get();
+            }
+        }
+    }
+
+    int binarySize() {
+        return 4 + 4 + N * N;
+    }
+
+    void writeTo(ByteBuffer buf) {
+        buf.putInt(N);
+        buf.putInt(M);
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < N; j++) {
+                buf.put((byte) C[i][j]);
+            }
+        }
+    }
+
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
@@ -0,0 +1,45 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// 得点計算の過程を可変長整数 (LEB128) の列としてファイルに書き出す。形式は README を参照。
+// 得点計算の途中から呼ばれるので、書き込みのエラーは UncheckedIOException として投げる
+class TraceWriter implements Closeable {
+    static final byte[] MAGIC = {'R', 'C', 'O', 'T'};
+    static final int VERSION = 1;
+
+    private final OutputStream out;
+
+    TraceWriter(Path path) throws IOException {
+        out = new BufferedOutputStream(Files.newOutputStream(path), 1 << 16);
+        out.write(MAGIC);
+        writeVarint(VERSION);
+    }
+
+    // 0 以上の値
+    void writeVarint(long v) {
+        try {
+            while ((v & ~0x7FL) != 0) {
+                out.write((int) (v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            out.write((int) v);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // 負になりうる値 (zigzag 符号化)
+    void writeSigned(long v) {
+        writeVarint((v << 1) ^ (v >> 63));
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
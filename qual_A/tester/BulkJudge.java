@@ -0,0 +1,216 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// 入力ディレクトリと出力ディレクトリのファイルを名前で対応づけ、まとめて得点を計算する
+public class BulkJudge {
+
+    static class Result {
+        String name;
+        int score;
+        String error;
+        // 採点中に Judge が標準エラー出力に書いた警告
+        byte[] warnings;
+    }
+
+    // 採点中のスレッドが System.err に書いた内容をスレッドごとに溜める。溜めていないスレッドの出力はそのまま書く。
+    // 並列に採点すると、各ケースの警告が混ざってどのケースのものか分からなくなるため
+    static class CaseErrorStream extends OutputStream {
+        private final OutputStream out;
+        private final ThreadLocal<ByteArrayOutputStream> buffer = new ThreadLocal<>();
+
+        CaseErrorStream(OutputStream out) {
+            this.out = out;
+        }
+
+        void begin() {
+            buffer.set(new ByteArrayOutputStream());
+        }
+
+        byte[] end() {
+            byte[] bytes = buffer.get().toByteArray();
+            buffer.remove();
+            return bytes;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            ByteArrayOutputStream buf = buffer.get();
+            if (buf != null) {
+                buf.write(b);
+            } else {
+                out.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ByteArrayOutputStream buf = buffer.get();
+            if (buf != null) {
+                buf.write(b, off, len);
+            } else {
+                out.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (buffer.get() == null) out.flush();
+        }
+    }
+
+    private static CaseErrorStream caseErr;
+
+    // cache が null でなければ、キャッシュにある得点を使い、計算した得点を保存する
+    static Result judge(Path inputFile, Path outputDir, ScoreCache cache) {
+        Result result = new Result();
+        result.name = inputFile.getFileName().toString();
+        if (caseErr != null) caseErr.begin();
+        try {
+            Path outputFile = outputDir.resolve(result.name);
+            if (!Files.isRegularFile(outputFile)) {
+                throw new RuntimeException("出力ファイルがありません: " + outputFile);
+            }
+            result.score = cache != null ? cache.score(inputFile, outputFile, Judge::score) : Judge.score(inputFile, outputFile);
+        } catch (Throwable e) {
+            // StackOverflowError なども、そのケースだけのエラーとして扱い、残りのケースの採点を続ける
+            result.error = e.getMessage() != null ? e.getMessage() : e.toString();
+        } finally {
+            if (caseErr != null) result.warnings = caseErr.end();
+        }
+        return result;
+    }
+
+    static String format(Result result, boolean json) {
+        if (json) {
+            if (result.error == null) {
+                return "{\"name\":" + jsonString(result.name) + ",\"score\":" + result.score + "}";
+            }
+            return "{\"name\":" + jsonString(result.name) + ",\"error\":" + jsonString(result.error) + "}";
+        }
+        if (result.error == null) {
+            return csvField(result.name) + "," + result.score + ",";
+        }
+        return csvField(result.name) + ",," + csvField(result.error);
+    }
+
+    // 溜めた警告の各行に入力ファイルの名前を付けて書き出す
+    static void printWarnings(PrintStream err, Result result) {
+        if (result.warnings == null || result.warnings.length == 0) return;
+        for (String line : new String(result.warnings).split("\n")) {
+            err.println(result.name + ": " + line);
+        }
+    }
+
+    static String csvField(String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) return s;
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+
+    static String jsonString(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch == '"' || ch == '\\') {
+                sb.append('\\').append(ch);
+            } else if (ch < ' ') {
+                sb.append(String.format("\\u%04x", (int) ch));
+            } else {
+                sb.append(ch);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    static void usage() {
+        System.err.println("usage: java BulkJudge input_dir output_dir [-parallel P] [-format csv|json] [-cache cache_dir] [-cache-size N] [-metrics metrics_file]");
+        System.exit(1);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            usage();
+        }
+        Path inputDir = Paths.get(args[0]);
+        Path outputDir = Paths.get(args[1]);
+        int parallel = Runtime.getRuntime().availableProcessors();
+        boolean json = false;
+        Path cacheDir = null;
+        int cacheSize = ScoreCache.DEFAULT_CAPACITY;
+        for (int i = 2; i < args.length; ++i) {
+            if (args[i].equals("-parallel")) {
+                parallel = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-format")) {
+                String format = args[++i];
+                if (!format.equals("csv") && !format.equals("json")) usage();
+                json = format.equals("json");
+            } else if (args[i].equals("-cache")) {
+                cacheDir = Paths.get(args[++i]);
+            } else if (args[i].equals("-cache-size")) {
+                cacheSize = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-metrics")) {
+                Metrics.writeAtExit(Paths.get(args[++i]));
+            } else {
+                System.err.println("unknown option:" + args[i]);
+                usage();
+            }
+        }
+        if (parallel < 1) {
+            usage();
+        }
+        List<Path> inputFiles;
+        try (Stream<Path> files = Files.list(inputDir)) {
+            inputFiles = files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+
+        PrintStream err = System.err;
+        caseErr = new CaseErrorStream(err);
+        System.setErr(new PrintStream(caseErr, true));
+        ScoreCache cache = cacheDir != null ? new ScoreCache(cacheDir, Judge.VERSION, cacheSize) : null;
+        ExecutorService pool = Executors.newWorkStealingPool(parallel);
+        ExecutorCompletionService<Result> results = new ExecutorCompletionService<>(pool);
+        for (Path inputFile : inputFiles) {
+            results.submit(() -> judge(inputFile, outputDir, cache));
+        }
+        if (!json) {
+            System.out.println("name,score,error");
+        }
+        int failed = 0;
+        long sum = 0;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < inputFiles.size(); i++) {
+            Result result = results.take().get();
+            printWarnings(err, result);
+            System.out.println(format(result, json));
+            if (result.error != null) {
+                failed++;
+                continue;
+            }
+            sum += result.score;
+            min = Math.min(min, result.score);
+            max = Math.max(max, result.score);
+        }
+        pool.shutdown();
+
+        int ok = inputFiles.size() - failed;
+        System.err.println("cases:" + inputFiles.size() + " failed:" + failed);
+        if (ok > 0) {
+            System.err.printf("sum:%d mean:%.3f min:%d max:%d%n", sum, (double) sum / ok, min, max);
+        }
+        if (cache != null) {
+            System.err.println("cache hits:" + cache.hits() + " misses:" + cache.misses());
+            cache.close();
+        }
+    }
+}
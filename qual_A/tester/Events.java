@@ -0,0 +1,47 @@
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Java Flight Recorder のイベント。記録していないときは commit しても何もしない。
+// java -XX:StartFlightRecording=filename=rec.jfr Judge ... で記録し、jfr print --events 'rcoc.*' rec.jfr で見られる
+class Events {
+	@Name("rcoc.qual_A.Score")
+	@Label("Judge.score")
+	@Category({"RCOC", "qual_A"})
+	static class Score extends Event {
+		@Label("Score")
+		int score;
+	}
+
+	@Name("rcoc.qual_A.Parse")
+	@Label("Parse")
+	@Category({"RCOC", "qual_A"})
+	static class Parse extends Event {
+		@Label("Points")
+		int points;
+	}
+
+	// 巡回路の辺の長さの分散の計算
+	@Name("rcoc.qual_A.Simulate")
+	@Label("Simulate")
+	@Category({"RCOC", "qual_A"})
+	static class Simulate extends Event {
+		@Label("Points")
+		int points;
+		@Label("Variance")
+		double variance;
+	}
+
+	@Name("rcoc.qual_A.Generate")
+	@Label("TestCase(seed)")
+	@Category({"RCOC", "qual_A"})
+	static class Generate extends Event {
+		@Label("Seed")
+		long seed;
+		@Label("Rng")
+		String rng;
+		@Label("Points")
+		int points;
+	}
+}
@@ -1,13 +1,19 @@
+import java.nio.file.Paths;
 import java.util.Random;
 
 public class Generator {
 	public static void main(String[] args) {
 		long seed = new Random().nextInt();
+		TestCase.Rng rng = TestCase.Rng.SHA1PRNG;
 		for (int i = 0; i < args.length; ++i) {
 			if (args[i].equals("-seed")) {
 				seed = Long.parseLong(args[++i]);
+			} else if (args[i].equals("-rng")) {
+				rng = TestCase.Rng.valueOf(args[++i].toUpperCase());
+			} else if (args[i].equals("-metrics")) {
+				Metrics.writeAtExit(Paths.get(args[++i]));
 			}
 		}
-		System.out.println(new TestCase(seed).toString());
+		System.out.println(new TestCase(seed, rng).toString());
 	}
 }
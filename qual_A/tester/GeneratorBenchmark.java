@@ -0,0 +1,23 @@
+// TestCase(long seed) の乱数ごとの生成速度を比較する。
+public class GeneratorBenchmark {
+	static double casesPerSecond(TestCase.Rng rng, int cases) {
+		long sum = 0;
+		long start = System.nanoTime();
+		for (int seed = 1; seed <= cases; seed++) {
+			sum += new TestCase(seed, rng).X[0];
+		}
+		long elapsed = System.nanoTime() - start;
+		if (sum == 42) System.err.println();
+		return cases * 1e9 / elapsed;
+	}
+
+	public static void main(String[] args) {
+		int cases = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		for (TestCase.Rng rng : TestCase.Rng.values()) {
+			casesPerSecond(rng, cases / 10);
+		}
+		for (TestCase.Rng rng : TestCase.Rng.values()) {
+			System.out.printf("%-9s %12.0f cases/s%n", rng, casesPerSecond(rng, cases));
+		}
+	}
+}
@@ -1,42 +1,105 @@
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Scanner;
 
 public class Judge {
-    private int execute(TestCase testCase, Scanner outputScanner) {
+    // 得点計算の規則を変えたら変える。ScoreCache のキーに含まれる
+    static final String VERSION = "qual_A-1";
+
+    static class TrailingOutputException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        TrailingOutputException() {
+            super("末尾に余計な出力があります");
+        }
+    }
+
+    private static int[] readPermutation(TestCase testCase, OutputTokenizer outputTokenizer) {
         int[] permtation = new int[testCase.N];
         Arrays.fill(permtation, -1);
 
         for (int i = 0; i < testCase.N; i++) {
-            String line = outputScanner.nextLine().trim();
-            permtation[i] = Integer.parseInt(line);
+            outputTokenizer.nextLine();
+            permtation[i] = outputTokenizer.lineAsInt();
         }
-        while (outputScanner.hasNextLine()) {
-            String line = outputScanner.nextLine().trim();
-            if (!line.isEmpty()) {
-                System.err.println("[ERROR] 末尾に余計な出力があります");
-                System.exit(1);
+        while (outputTokenizer.hasNextLine()) {
+            outputTokenizer.nextLine();
+            if (outputTokenizer.tokenCount() != 0) {
+                throw new TrailingOutputException();
             }
         }
+        return permtation;
+    }
 
-        double variance = testCase.variance(permtation);
+    private static int calcScore(TestCase testCase, int[] permutation) {
+        Events.Simulate event = new Events.Simulate();
+        event.begin();
+        long start = System.nanoTime();
+        double variance = testCase.variance(permutation);
         int score = (int) Math.ceil(1e6 / (1 + variance));
+        event.points = testCase.N;
+        event.variance = variance;
+        event.commit();
+        Metrics.time("judge.simulate_ns", start);
+        return score;
+    }
+
+    static int score(Path inputFile, Path outputFile) throws IOException {
+        Events.Score event = new Events.Score();
+        event.begin();
+        long start = System.nanoTime();
+        Events.Parse parse = new Events.Parse();
+        parse.begin();
+        TestCase testCase;
+        try (Scanner inputScanner = new Scanner(inputFile)) {
+            testCase = new TestCase(inputScanner);
+        }
+        int[] permutation = readPermutation(testCase, OutputTokenizer.open(outputFile));
+        parse.points = testCase.N;
+        parse.commit();
+        Metrics.time("judge.parse_ns", start);
+        int score = calcScore(testCase, permutation);
+        event.score = score;
+        event.commit();
+        Metrics.time("judge.total_ns", start);
+        Metrics.record("judge.score", score);
+        Metrics.count("judge.cases", 1);
         return score;
     }
 
     public static void main(String[] args) throws Exception {
         if (args.length < 2) {
-            System.err.println("usage: java Judge input_file_path output_file_path");
+            System.err.println("usage: java Judge input_file_path output_file_path [-cache cache_dir] [-cache-size N] [-metrics metrics_file]");
             System.exit(1);
         }
         Path inputFile = Paths.get(args[0]);
         Path outputFile = Paths.get(args[1]);
-        try (Scanner inputScanner = new Scanner(inputFile);
-            Scanner outputScanner = new Scanner(outputFile)) {
-            TestCase testCase = new TestCase(inputScanner);
-            int score = new Judge().execute(testCase, outputScanner);
+        Path cacheDir = null;
+        int cacheSize = ScoreCache.DEFAULT_CAPACITY;
+        for (int i = 2; i < args.length; ++i) {
+            if (args[i].equals("-cache")) {
+                cacheDir = Paths.get(args[++i]);
+            } else if (args[i].equals("-cache-size")) {
+                cacheSize = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-metrics")) {
+                Metrics.writeAtExit(Paths.get(args[++i]));
+            }
+        }
+        try {
+            int score;
+            if (cacheDir != null) {
+                try (ScoreCache cache = new ScoreCache(cacheDir, VERSION, cacheSize)) {
+                    score = cache.score(inputFile, outputFile, Judge::score);
+                }
+            } else {
+                score = score(inputFile, outputFile);
+            }
             System.out.println("score:" + score);
+        } catch (TrailingOutputException e) {
+            System.err.println("[ERROR] " + e.getMessage());
+            System.exit(1);
         }
     }
 
@@ -0,0 +1,210 @@
+import java.util.Arrays;
+
+// 点を一様な格子のバケットに分けて持ち、ある位置からの距離が指定した範囲に入る点を探す。
+// 分散を小さくするには辺の長さを揃えればよいので、「点 p からの距離が d に近い点」を求めるのに使う。
+// 探索は距離の範囲 (円環) と重なるバケットだけを見るので、全点を調べる必要はない。
+// 作業領域を持つので、複数のスレッドから同時に使ってはならない。
+class PointGrid {
+	// 1 つのバケットに入る点の数の目安
+	private static final int POINTS_PER_CELL = 2;
+
+	final int N;
+	// 全点を含む矩形
+	private final int minX;
+	private final int minY;
+	private final int maxX;
+	private final int maxY;
+	// バケットの一辺の長さと、バケットの列数・行数
+	private final int cell;
+	private final int cols;
+	private final int rows;
+	// バケット k の点は ids[start[k], start[k + 1])。xs, ys は ids と同じ順に並べた座標
+	private final int[] start;
+	private final int[] ids;
+	private final int[] xs;
+	private final int[] ys;
+	// 点 -> ids 内の位置
+	private final int[] position;
+	// 探索用の作業領域
+	private final int[] candidates;
+	private double[] heapKey = new double[16];
+	private int[] heapId = new int[16];
+
+	PointGrid(TestCase testCase) {
+		this(testCase.X, testCase.Y);
+	}
+
+	PointGrid(int[] X, int[] Y) {
+		N = X.length;
+		if (N == 0) throw new IllegalArgumentException("no points");
+		int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE;
+		int minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+		for (int i = 0; i < N; i++) {
+			minX = Math.min(minX, X[i]);
+			maxX = Math.max(maxX, X[i]);
+			minY = Math.min(minY, Y[i]);
+			maxY = Math.max(maxY, Y[i]);
+		}
+		this.minX = minX;
+		this.minY = minY;
+		this.maxX = maxX;
+		this.maxY = maxY;
+		long width = (long) maxX - minX + 1;
+		long height = (long) maxY - minY + 1;
+		cell = (int) Math.max(1, Math.ceil(Math.sqrt((double) width * height * POINTS_PER_CELL / N)));
+		cols = (int) ((width + cell - 1) / cell);
+		rows = (int) ((height + cell - 1) / cell);
+
+		start = new int[cols * rows + 1];
+		int[] cellOf = new int[N];
+		for (int i = 0; i < N; i++) {
+			cellOf[i] = (Y[i] - minY) / cell * cols + (X[i] - minX) / cell;
+			start[cellOf[i] + 1]++;
+		}
+		for (int k = 0; k < cols * rows; k++) {
+			start[k + 1] += start[k];
+		}
+		int[] next = Arrays.copyOf(start, cols * rows);
+		ids = new int[N];
+		xs = new int[N];
+		ys = new int[N];
+		position = new int[N];
+		for (int i = 0; i < N; i++) {
+			int k = next[cellOf[i]]++;
+			position[i] = k;
+			ids[k] = i;
+			xs[k] = X[i];
+			ys[k] = Y[i];
+		}
+		candidates = new int[N];
+	}
+
+	// (x, y) からの距離が [lo, hi] に入る点 (exclude を除く) を out に書き出し、その数を返す。順序は不定
+	int ring(int x, int y, double lo, double hi, int exclude, int[] out) {
+		if (hi < 0 || hi < lo) return 0;
+		double lo2 = lo <= 0 ? -1 : lo * lo;
+		double hi2 = hi * hi;
+		int count = 0;
+		int r0 = Math.max(0, (int) Math.floor((y - hi - minY) / cell));
+		int r1 = Math.min(rows - 1, (int) Math.floor((y + hi - minY) / cell));
+		for (int row = r0; row <= r1; row++) {
+			// この行のバケットの y 座標の範囲と、(x, y) からの y 方向の距離の最小・最大
+			int y0 = minY + row * cell;
+			int y1 = y0 + cell - 1;
+			double dyMin = y < y0 ? y0 - y : y > y1 ? y - y1 : 0;
+			double dyMax = Math.max(Math.abs(y - y0), Math.abs(y - y1));
+			double outer = hi2 - dyMin * dyMin;
+			if (outer < 0) continue;
+			double w = Math.sqrt(outer);
+			int c0 = Math.max(0, (int) Math.floor((x - w - minX) / cell));
+			int c1 = Math.min(cols - 1, (int) Math.floor((x + w - minX) / cell));
+			// 内側の円に完全に含まれるバケット [i0, i1] は調べなくてよい
+			int i0 = c1 + 1;
+			int i1 = c0 - 1;
+			double inner = lo2 - dyMax * dyMax;
+			if (inner > 0) {
+				double v = Math.sqrt(inner);
+				i0 = (int) Math.floor((x - v - minX) / cell) + 1;
+				i1 = (int) Math.ceil((x + v - minX - cell + 1) / cell) - 1;
+			}
+			for (int col = c0; col <= c1; col++) {
+				if (i0 <= col && col <= i1) {
+					col = i1;
+					continue;
+				}
+				int k = row * cols + col;
+				for (int j = start[k]; j < start[k + 1]; j++) {
+					long dx = xs[j] - x;
+					long dy = ys[j] - y;
+					long d2 = dx * dx + dy * dy;
+					if (lo2 <= d2 && d2 <= hi2 && ids[j] != exclude) out[count++] = ids[j];
+				}
+			}
+		}
+		return count;
+	}
+
+	// 点 p からの距離が d に近い順に k 個の点 (p を除く) を out に書き出し、その数を返す。
+	// 距離の差が等しい点は番号の小さい順
+	int closestToDistance(int p, double d, int k, int[] out) {
+		int j = position[p];
+		return closestToDistance(xs[j], ys[j], d, k, p, out);
+	}
+
+	// (x, y) からの距離が d に近い順に k 個の点 (exclude を除く) を out に書き出し、その数を返す
+	int closestToDistance(int x, int y, double d, int k, int exclude, int[] out) {
+		if (k <= 0) return 0;
+		// NaN や無限大では円環が全点を覆うことがなく、幅を広げ続けて止まらない
+		if (!Double.isFinite(d)) throw new IllegalArgumentException("distance must be finite: " + d);
+		// 幅 eps の円環に k 個以上の点があれば、近い順の k 個はすべてその中にある
+		double eps = cell;
+		// (x, y) から全点を含む矩形の最も遠い角までの距離の 2 乗。円環がこれを覆えば全点を調べたことになる
+		long farX = Math.max(Math.abs((long) x - minX), Math.abs((long) x - maxX));
+		long farY = Math.max(Math.abs((long) y - minY), Math.abs((long) y - maxY));
+		double reach2 = farX * farX + farY * farY;
+		int m;
+		while (true) {
+			m = ring(x, y, d - eps, d + eps, exclude, candidates);
+			if (m >= k || (d - eps <= 0 && d + eps >= 0 && (d + eps) * (d + eps) >= reach2)) break;
+			eps *= 2;
+		}
+		if (heapKey.length < k) {
+			heapKey = new double[k];
+			heapId = new int[k];
+		}
+		// 距離の差が最も大きいものを根に持つ、大きさ k 以下のヒープ
+		int size = 0;
+		for (int i = 0; i < m; i++) {
+			int q = candidates[i];
+			int jq = position[q];
+			long dx = xs[jq] - x;
+			long dy = ys[jq] - y;
+			double key = Math.abs(Math.sqrt(dx * dx + dy * dy) - d);
+			if (size < k) {
+				siftUp(size++, key, q);
+			} else if (less(key, q, heapKey[0], heapId[0])) {
+				siftDown(size, key, q);
+			}
+		}
+		int count = size;
+		while (size > 0) {
+			out[--size] = heapId[0];
+			double key = heapKey[size];
+			int id = heapId[size];
+			if (size > 0) siftDown(size, key, id);
+		}
+		return count;
+	}
+
+	private static boolean less(double key0, int id0, double key1, int id1) {
+		return key0 < key1 || (key0 == key1 && id0 < id1);
+	}
+
+	private void siftUp(int i, double key, int id) {
+		while (i > 0) {
+			int parent = (i - 1) / 2;
+			if (!less(heapKey[parent], heapId[parent], key, id)) break;
+			heapKey[i] = heapKey[parent];
+			heapId[i] = heapId[parent];
+			i = parent;
+		}
+		heapKey[i] = key;
+		heapId[i] = id;
+	}
+
+	// 根を (key, id) で置き換えて下ろす
+	private void siftDown(int size, double key, int id) {
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) break;
+			if (child + 1 < size && less(heapKey[child], heapId[child], heapKey[child + 1], heapId[child + 1])) child++;
+			if (!less(key, id, heapKey[child], heapId[child])) break;
+			heapKey[i] = heapKey[child];
+			heapId[i] = heapId[child];
+			i = child;
+		}
+		heapKey[i] = key;
+		heapId[i] = id;
+	}
+}
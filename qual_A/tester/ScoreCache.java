@@ -0,0 +1,210 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// 入力ファイル・出力ファイルの内容とジャッジのバージョンの SHA-256 をキーにして、得点をディレクトリに保存する。
+// 各エントリは 1 つのファイルで、一時ファイルに書いてから名前を変えるので、同時に書き込む別のジャッジから壊れたエントリは見えない。
+// ヒットしたエントリは更新時刻を新しくする。ヒット数・ミス数と保存した件数は close() でファイルロックを取って stats ファイルに足し込み、
+// 件数が上限を超えたときだけエントリの一覧を取って、上限の 9 割になるまで更新時刻の古い順に消す。
+class ScoreCache implements Closeable {
+    static final int DEFAULT_CAPACITY = 100000;
+    // これより古い一時ファイルは、書き込み中に終了したジャッジが残したものとみなして消す
+    private static final long ORPHAN_MILLIS = 60 * 60 * 1000;
+
+    interface Scorer {
+        int score(Path inputFile, Path outputFile) throws IOException;
+    }
+
+    private final Path dir;
+    private final Path entries;
+    private final String version;
+    private final int capacity;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    // このインスタンスが保存したエントリの数。別のジャッジが同じエントリを同時に保存すると実際より多くなるが、一覧を取り直すときに正される
+    private final AtomicLong inserted = new AtomicLong();
+    // 同じ JVM 内の複数のスレッドが同じファイルをロックすると例外になるので、先に JVM 内で排他する
+    private static final Object LOCK = new Object();
+
+    ScoreCache(Path dir, String version) throws IOException {
+        this(dir, version, DEFAULT_CAPACITY);
+    }
+
+    ScoreCache(Path dir, String version, int capacity) throws IOException {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be positive");
+        this.dir = dir;
+        this.entries = dir.resolve("entries");
+        this.version = version;
+        this.capacity = capacity;
+        Files.createDirectories(entries);
+    }
+
+    // キャッシュにあればその得点を、なければ scorer で計算して保存した得点を返す。scorer の例外は保存せずにそのまま投げる
+    int score(Path inputFile, Path outputFile, Scorer scorer) throws IOException {
+        String key = key(inputFile, outputFile);
+        Path entry = entries.resolve(key);
+        try {
+            int score = Integer.parseInt(new String(Files.readAllBytes(entry), StandardCharsets.US_ASCII).trim());
+            try {
+                Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            } catch (NoSuchFileException e) {
+                // 読んだ直後に別のジャッジが消した
+            }
+            hits.incrementAndGet();
+            return score;
+        } catch (NoSuchFileException | NumberFormatException e) {
+            // エントリがない
+        }
+        misses.incrementAndGet();
+        int score = scorer.score(inputFile, outputFile);
+        Path tmp = Files.createTempFile(entries, "tmp-", "");
+        try {
+            Files.write(tmp, Integer.toString(score).getBytes(StandardCharsets.US_ASCII));
+            Files.move(tmp, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            inserted.incrementAndGet();
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return score;
+    }
+
+    String key(Path inputFile, Path outputFile) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] v = version.getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(4).putInt(v.length).array());
+        digest.update(v);
+        update(digest, inputFile);
+        update(digest, outputFile);
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(Character.forDigit(b >> 4 & 15, 16)).append(Character.forDigit(b & 15, 16));
+        }
+        return sb.toString();
+    }
+
+    // 長さを先に入れて、ファイルの境界をずらした別の組と同じキーにならないようにする
+    private static void update(MessageDigest digest, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            digest.update(ByteBuffer.allocate(8).putLong(channel.size()).array());
+            if (channel.size() > 0) digest.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    long hits() {
+        return hits.get();
+    }
+
+    long misses() {
+        return misses.get();
+    }
+
+    // ヒット数・ミス数と保存した件数を stats ファイルに足し込み、件数が上限を超えていればエントリを消す
+    @Override
+    public void close() throws IOException {
+        long h = hits.getAndSet(0);
+        long m = misses.getAndSet(0);
+        long added = inserted.getAndSet(0);
+        if (h == 0 && m == 0) return;
+        synchronized (LOCK) {
+            try (FileChannel channel = FileChannel.open(dir.resolve("lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                // ロックはチャネルを閉じると解放される
+                channel.lock();
+                long[] stats = readStats(dir);
+                // 件数を記録していない古いキャッシュでは、一度だけ一覧を取って数える
+                long count = stats[2] < 0 ? capacity + 1 : stats[2] + added;
+                if (count > capacity) count = evict();
+                writeStats(dir, stats[0] + h, stats[1] + m, count);
+            }
+        }
+    }
+
+    // 上限の 9 割になるまで更新時刻の古い順にエントリを消し、残った件数を返す。
+    // 一覧を取るのはエントリ数に比例して重いので、消すたびに余裕を空けて、次に一覧を取るまでの挿入の回数を稼ぐ
+    private long evict() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(entries)) {
+            files = list.collect(Collectors.toList());
+        }
+        long now = System.currentTimeMillis();
+        Map<Path, FileTime> modified = new HashMap<>();
+        for (Path file : files) {
+            try {
+                FileTime time = Files.getLastModifiedTime(file);
+                if (!file.getFileName().toString().startsWith("tmp-")) {
+                    modified.put(file, time);
+                } else if (now - time.toMillis() > ORPHAN_MILLIS) {
+                    Files.deleteIfExists(file);
+                }
+            } catch (NoSuchFileException e) {
+                // 一覧を取った後に消えた
+            }
+        }
+        int target = capacity - capacity / 10;
+        if (modified.size() <= target) return modified.size();
+        List<Path> oldest = new ArrayList<>(modified.keySet());
+        oldest.sort(Comparator.comparing(modified::get));
+        for (int i = 0; i < oldest.size() - target; i++) {
+            Files.deleteIfExists(oldest.get(i));
+        }
+        return target;
+    }
+
+    // {ヒット数, ミス数, 件数}。件数を記録していなければ -1
+    static long[] readStats(Path dir) throws IOException {
+        long[] stats = {0, 0, -1};
+        Path file = dir.resolve("stats");
+        if (!Files.exists(file)) return stats;
+        for (String line : Files.readAllLines(file, StandardCharsets.US_ASCII)) {
+            String[] kv = line.trim().split("\\s+");
+            if (kv.length != 2) continue;
+            if (kv[0].equals("hits")) stats[0] = Long.parseLong(kv[1]);
+            if (kv[0].equals("misses")) stats[1] = Long.parseLong(kv[1]);
+            if (kv[0].equals("entries")) stats[2] = Long.parseLong(kv[1]);
+        }
+        return stats;
+    }
+
+    private static void writeStats(Path dir, long hits, long misses, long entries) throws IOException {
+        Path tmp = Files.createTempFile(dir, "stats-", "");
+        Files.write(tmp, ("hits " + hits + "\nmisses " + misses + "\nentries " + entries + "\n").getBytes(StandardCharsets.US_ASCII));
+        Files.move(tmp, dir.resolve("stats"), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("usage: java ScoreCache cache_dir");
+            System.exit(1);
+        }
+        Path dir = Paths.get(args[0]);
+        long[] stats = readStats(dir);
+        long count;
+        try (Stream<Path> list = Files.list(dir.resolve("entries"))) {
+            count = list.filter(p -> !p.getFileName().toString().startsWith("tmp-")).count();
+        }
+        System.out.println("entries:" + count + " hits:" + stats[0] + " misses:" + stats[1]);
+    }
+}
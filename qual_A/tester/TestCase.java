@@ -1,3 +1,4 @@
+import java.nio.ByteBuffer;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.Scanner;
@@ -9,19 +10,64 @@ class TestCase {
 	static final int MIN_Y = 0;
 	static final int MAX_Y = 500;
 
+	// テストケース生成に使う乱数
+	enum Rng {
+		// 既定。シード値が同じなら従来と同じテストケースになる
+		SHA1PRNG,
+		// 高速だが、SHA1PRNG とは異なるテストケースになる
+		XORSHIFT,
+	}
+
 	int N;
 	SecureRandom rnd;
+	XorShift xorShift;
 	// 各点の座標
 	int[] X;
 	int[] Y;
 
+	static class XorShift {
+		long x = 88172645463325252L;
+
+		void setSeed(long seed) {
+			x = seed;
+		}
+
+		long next() {
+			x ^= x << 13;
+			x ^= x >>> 7;
+			x ^= x << 17;
+			return x;
+		}
+
+		int nextInt(int n) {
+			long upper = Long.divideUnsigned(-1, n) * n;
+			long v = next();
+			while (Long.compareUnsigned(v, upper) >= 0) {
+				v = next();
+			}
+			return (int) Long.remainderUnsigned(v, n);
+		}
+	}
+
 	TestCase(long seed) {
-		try {
-			rnd = SecureRandom.getInstance("SHA1PRNG");
-		} catch (NoSuchAlgorithmException e) {
-			e.printStackTrace();
+		this(seed, Rng.SHA1PRNG);
+	}
+
+	TestCase(long seed, Rng rng) {
+		Events.Generate event = new Events.Generate();
+		event.begin();
+		long start = System.nanoTime();
+		if (rng == Rng.XORSHIFT) {
+			xorShift = new XorShift();
+			xorShift.setSeed(seed);
+		} else {
+			try {
+				rnd = SecureRandom.getInstance("SHA1PRNG");
+			} catch (NoSuchAlgorithmException e) {
+				e.printStackTrace();
+			}
+			rnd.setSeed(seed);
 		}
-		rnd.setSeed(seed);
 
 		N = 200;
 		X = new int[N];
@@ -30,6 +76,12 @@ class TestCase {
 			X[i] = getRandomInt(MIN_X, MAX_X);
 			Y[i] = getRandomInt(MIN_Y, MAX_Y);
 		}
+		event.seed = seed;
+		event.rng = rng.name();
+		event.points = N;
+		event.commit();
+		Metrics.time("generate.total_ns", start);
+		Metrics.count("generate.cases", 1);
 	}
 
 	TestCase(Scanner sc) {
@@ -42,6 +94,29 @@ class TestCase {
 		}
 	}
 
+	// Corpus から読む。N (int) と各点の座標 (short) が続く
+	TestCase(ByteBuffer buf) {
+		N = buf.getInt();
+		X = new int[N];
+		Y = new int[N];
+		for (int i = 0; i < N; i++) {
+			X[i] = buf.getShort();
+			Y[i] = buf.getShort();
+		}
+	}
+
+	int binarySize() {
+		return 4 + 4 * N;
+	}
+
+	void writeTo(ByteBuffer buf) {
+		buf.putInt(N);
+		for (int i = 0; i < N; i++) {
+			buf.putShort((short) X[i]);
+			buf.putShort((short) Y[i]);
+		}
+	}
+
 	private static double calcDist(int x0, int y0, int x1, int y1) {
 		return Math.sqrt((x0 - x1) * (x0 - x1) + (y0 - y1) * (y0 - y1));
 	}
@@ -94,6 +169,7 @@ class TestCase {
 	}
 
 	private int getRandomInt(int minInclusive, int maxInclusive) {
-		return rnd.nextInt(maxInclusive - minInclusive + 1) + minInclusive;
+		int n = maxInclusive - minInclusive + 1;
+		return (xorShift != null ? xorShift.nextInt(n) : rnd.nextInt(n)) + minInclusive;
 	}
 }
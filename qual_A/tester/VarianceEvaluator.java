@@ -0,0 +1,230 @@
+// TestCase.variance(permutation) と同じ値を、巡回路の局所的な変更に対して差分で計算する。
+// delta* は状態を変えずに分散の変化量を O(1) で返し、apply* で変更を確定する。
+// 位置 i の辺とは、巡回路上で位置 i と位置 (i + 1) % N の点を結ぶ辺を表す。
+class VarianceEvaluator {
+	// 誤差の蓄積を防ぐため、この回数 apply するごとに和を計算し直す
+	private static final int RESYNC_INTERVAL = 1024;
+
+	final int N;
+	// 点 a, b 間の距離 (a * N + b)
+	private final double[] dist;
+	// 位置 -> 点
+	private final int[] tour;
+	private final int[] work;
+	// 辺の長さから shift を引いた値の和と二乗和
+	private double shift;
+	private double sum;
+	private double sum2;
+	private int applied;
+
+	VarianceEvaluator(TestCase testCase, int[] permutation) {
+		N = testCase.N;
+		if (permutation.length != N) throw new IllegalArgumentException("answer length != N");
+		boolean[] used = new boolean[N];
+		for (int i = 0; i < N; i++) {
+			if (permutation[i] < 0 || permutation[i] >= N) throw new IllegalArgumentException(String.format("%dth answer is out of range", i));
+			used[permutation[i]] = true;
+		}
+		for (int i = 0; i < N; i++) {
+			if (!used[i]) throw new IllegalArgumentException(String.format("%d is not used.", i));
+		}
+
+		dist = new double[N * N];
+		for (int a = 0; a < N; a++) {
+			for (int b = 0; b < N; b++) {
+				int dx = testCase.X[a] - testCase.X[b];
+				int dy = testCase.Y[a] - testCase.Y[b];
+				dist[a * N + b] = Math.sqrt(dx * dx + dy * dy);
+			}
+		}
+		tour = permutation.clone();
+		work = new int[N];
+		resync();
+	}
+
+	// 位置 i にある点
+	int at(int i) {
+		return tour[i];
+	}
+
+	int[] permutation() {
+		return tour.clone();
+	}
+
+	double variance() {
+		return varianceOf(sum, sum2);
+	}
+
+	// 和を計算し直す。shift を現在の平均にとることで、二乗和の桁落ちを抑える
+	void resync() {
+		double total = 0;
+		for (int i = 0; i < N; i++) {
+			total += edge(i);
+		}
+		shift = total / N;
+		sum = 0;
+		sum2 = 0;
+		for (int i = 0; i < N; i++) {
+			double e = edge(i) - shift;
+			sum += e;
+			sum2 += e * e;
+		}
+		applied = 0;
+	}
+
+	private double varianceOf(double s, double s2) {
+		double mean = s / N;
+		return s2 / N - mean * mean;
+	}
+
+	private double edge(int i) {
+		return dist[tour[i] * N + tour[i + 1 == N ? 0 : i + 1]];
+	}
+
+	private double d(int a, int b) {
+		return dist[a * N + b] - shift;
+	}
+
+	private int prev(int i) {
+		return i == 0 ? N - 1 : i - 1;
+	}
+
+	private int next(int i) {
+		return i == N - 1 ? 0 : i + 1;
+	}
+
+	// 辺 r1, r2, r3 を取り除き a1, a2, a3 を加えたときの分散の変化量 (値は shift を引いた長さ)
+	private double delta(double r1, double r2, double r3, double a1, double a2, double a3) {
+		double s = sum - r1 - r2 - r3 + a1 + a2 + a3;
+		double s2 = sum2 - r1 * r1 - r2 * r2 - r3 * r3 + a1 * a1 + a2 * a2 + a3 * a3;
+		return varianceOf(s, s2) - variance();
+	}
+
+	private void commit(double r1, double r2, double r3, double a1, double a2, double a3) {
+		sum += -r1 - r2 - r3 + a1 + a2 + a3;
+		sum2 += -r1 * r1 - r2 * r2 - r3 * r3 + a1 * a1 + a2 * a2 + a3 * a3;
+		if (++applied == RESYNC_INTERVAL) resync();
+	}
+
+	// 2-opt: 位置 i から j (0 <= i <= j < N) までを反転する
+	double deltaTwoOpt(int i, int j) {
+		checkTwoOpt(i, j);
+		// 全体の反転では辺の長さは変わらない
+		if (i == 0 && j == N - 1) return 0;
+		int p = tour[prev(i)], a = tour[i], b = tour[j], q = tour[next(j)];
+		return delta(d(p, a), d(b, q), 0, d(p, b), d(a, q), 0);
+	}
+
+	// 変更の確定には反転する区間の長さに比例する時間がかかる
+	void applyTwoOpt(int i, int j) {
+		checkTwoOpt(i, j);
+		boolean whole = i == 0 && j == N - 1;
+		int p = tour[prev(i)], a = tour[i], b = tour[j], q = tour[next(j)];
+		double r1 = d(p, a), r2 = d(b, q), a1 = d(p, b), a2 = d(a, q);
+		for (int l = i, r = j; l < r; l++, r--) {
+			int tmp = tour[l];
+			tour[l] = tour[r];
+			tour[r] = tmp;
+		}
+		if (whole) return;
+		commit(r1, r2, 0, a1, a2, 0);
+	}
+
+	private void checkTwoOpt(int i, int j) {
+		if (i < 0 || j < i || N <= j) throw new IllegalArgumentException("invalid 2-opt (" + i + "," + j + ")");
+	}
+
+	// 位置 i と j の点を入れ替える
+	double deltaSwap(int i, int j) {
+		checkSwap(i, j);
+		if (i == j) return 0;
+		swapChange(i, j);
+		return varianceOf(sum + swapSum, sum2 + swapSum2) - variance();
+	}
+
+	void applySwap(int i, int j) {
+		checkSwap(i, j);
+		if (i == j) return;
+		swapChange(i, j);
+		int tmp = tour[i];
+		tour[i] = tour[j];
+		tour[j] = tmp;
+		sum += swapSum;
+		sum2 += swapSum2;
+		if (++applied == RESYNC_INTERVAL) resync();
+	}
+
+	private final int[] swapEdges = new int[4];
+	private int swapEdgeCount;
+	private double swapSum;
+	private double swapSum2;
+
+	// 入れ替えで長さが変わりうる辺 (重複を除いて最大 4 本) について、和と二乗和の変化量を求める
+	private void swapChange(int i, int j) {
+		swapEdgeCount = 0;
+		addSwapEdge(prev(i));
+		addSwapEdge(i);
+		addSwapEdge(prev(j));
+		addSwapEdge(j);
+		swapSum = 0;
+		swapSum2 = 0;
+		for (int l = 0; l < swapEdgeCount; l++) {
+			int k = swapEdges[l];
+			int k1 = next(k);
+			double before = d(tour[k], tour[k1]);
+			double after = d(swapped(k, i, j), swapped(k1, i, j));
+			swapSum += after - before;
+			swapSum2 += after * after - before * before;
+		}
+	}
+
+	private void addSwapEdge(int k) {
+		for (int l = 0; l < swapEdgeCount; l++) {
+			if (swapEdges[l] == k) return;
+		}
+		swapEdges[swapEdgeCount++] = k;
+	}
+
+	private int swapped(int k, int i, int j) {
+		return k == i ? tour[j] : k == j ? tour[i] : tour[k];
+	}
+
+	private void checkSwap(int i, int j) {
+		if (i < 0 || N <= i || j < 0 || N <= j) throw new IllegalArgumentException("invalid swap (" + i + "," + j + ")");
+	}
+
+	// or-opt: 位置 i から長さ len の区間 (i + len <= N) を取り出し、
+	// 位置 j の点の直後に向きを変えずに挿入する。j は区間とその直前以外の位置
+	double deltaOrOpt(int i, int len, int j) {
+		checkOrOpt(i, len, j);
+		int p = tour[prev(i)], s = tour[i], e = tour[i + len - 1], q = tour[next(i + len - 1)];
+		int x = tour[j], y = tour[next(j)];
+		return delta(d(p, s), d(e, q), d(x, y), d(p, q), d(x, s), d(e, y));
+	}
+
+	// 変更の確定には O(N) の時間がかかる
+	void applyOrOpt(int i, int len, int j) {
+		checkOrOpt(i, len, j);
+		int p = tour[prev(i)], s = tour[i], e = tour[i + len - 1], q = tour[next(i + len - 1)];
+		int x = tour[j], y = tour[next(j)];
+		double r1 = d(p, s), r2 = d(e, q), r3 = d(x, y), a1 = d(p, q), a2 = d(x, s), a3 = d(e, y);
+		int size = 0;
+		for (int k = 0; k < N; k++) {
+			if (i <= k && k < i + len) continue;
+			work[size++] = tour[k];
+			if (k == j) {
+				for (int l = i; l < i + len; l++) {
+					work[size++] = tour[l];
+				}
+			}
+		}
+		System.arraycopy(work, 0, tour, 0, N);
+		commit(r1, r2, r3, a1, a2, a3);
+	}
+
+	private void checkOrOpt(int i, int len, int j) {
+		if (i < 0 || len < 1 || N < i + len || j < 0 || N <= j || (i <= j && j < i + len) || j == prev(i)) {
+			throw new IllegalArgumentException("invalid or-opt (" + i + "," + len + "," + j + ")");
+		}
+	}
+}
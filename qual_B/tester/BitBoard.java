@@ -0,0 +1,169 @@
+import java.util.Arrays;
+
+// 盤面を値ごとのビットマスクで持つ表現。マスクは 1 行を 1 つの long に入れた long[N] で、c 列目が c ビット目になる。
+// 連結成分は、始点から隣接するビットへ広げて同じ値のマスクで絞ることを繰り返して求める。
+// 1 行の中の広がりはビット演算でまとめて求めるので、1 マスずつ広げる必要はない。
+// Judge.Output と同じ操作を行い、同じ結果を返す。N は 64 以下でなければならない。
+class BitBoard {
+    static final int REMOVED = ComponentIndex.REMOVED;
+
+    final int N;
+    // layers[v] は値が v の区画。値は操作で大きくなるので必要に応じて増やす
+    private long[][] layers;
+    // 収穫済みの区画
+    private final long[] removed;
+    // 探索用の作業領域と、work に書き出されている行の範囲
+    private final long[] work;
+    private int workLo, workHi;
+    // fill が直前に書き出した行の範囲
+    private int lo, hi;
+
+    BitBoard(TestCase testcase) {
+        N = testcase.N;
+        if (N > 64) throw new IllegalArgumentException("N = " + N + " is too large for BitBoard");
+        layers = new long[1][];
+        removed = new long[N];
+        work = new long[N];
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < N; j++) {
+                layer(testcase.A[i][j])[i] |= 1L << j;
+            }
+        }
+    }
+
+    int get(int r, int c) {
+        long bit = 1L << c;
+        if ((removed[r] & bit) != 0) return REMOVED;
+        for (int v = 0; v < layers.length; v++) {
+            if (layers[v] != null && (layers[v][r] & bit) != 0) return v;
+        }
+        throw new IllegalStateException();
+    }
+
+    boolean isRemoved(int r, int c) {
+        return (removed[r] & 1L << c) != 0;
+    }
+
+    // 値が v の区画のマスク
+    private long[] layer(int v) {
+        if (v >= layers.length) layers = Arrays.copyOf(layers, Math.max(v + 1, layers.length * 2));
+        if (layers[v] == null) layers[v] = new long[N];
+        return layers[v];
+    }
+
+    // 収穫済みの区画には何もしない (Judge では警告を出して無視する操作)
+    void increment(int r, int c) {
+        if (isRemoved(r, c)) return;
+        int v = get(r, c);
+        long bit = 1L << c;
+        layers[v][r] &= ~bit;
+        layer(v + 1)[r] |= bit;
+    }
+
+    // (r, c) を含む連結成分を out (長さ N) に書き出し、そのサイズを返す。(r, c) は収穫済みであってはならない
+    int component(int r, int c, long[] out) {
+        Arrays.fill(out, 0, N, 0);
+        return fill(r, c, out);
+    }
+
+    // out が 0 で埋まっているものとして連結成分を書き出す。書き出した行の範囲を lo, hi に残す
+    private int fill(int r, int c, long[] out) {
+        long[] mask = layers[get(r, c)];
+        out[r] = fillRow(mask[r], 1L << c);
+        lo = r;
+        hi = r;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            // 下の行へ広げる
+            for (int i = lo + 1; i < N; i++) {
+                long seed = out[i - 1] & mask[i] & ~out[i];
+                if (seed == 0) {
+                    if (i > hi) break;
+                    continue;
+                }
+                out[i] = fillRow(mask[i], out[i] | seed);
+                hi = Math.max(hi, i);
+                changed = true;
+            }
+            // 上の行へ広げる
+            for (int i = hi - 1; i >= 0; i--) {
+                long seed = out[i + 1] & mask[i] & ~out[i];
+                if (seed == 0) {
+                    if (i < lo) break;
+                    continue;
+                }
+                out[i] = fillRow(mask[i], out[i] | seed);
+                lo = Math.min(lo, i);
+                changed = true;
+            }
+            // 上へ広げた行から下へ広げられる場合があるので、変化がなくなるまで繰り返す
+        }
+        int size = 0;
+        for (int i = lo; i <= hi; i++) {
+            size += Long.bitCount(out[i]);
+        }
+        return size;
+    }
+
+    // mask の中で seed を含む連続したビットの区間をすべて埋める。
+    // 上位ビット向きには、mask + seed の桁上がりが seed から区間の上端まで伝わることを使う。
+    // 下位ビット向きには、1, 2, 4, ... ビットずつずらして広げる
+    static long fillRow(long mask, long seed) {
+        seed &= mask;
+        long up = ((mask + seed) ^ mask ^ seed | seed) & mask;
+        long down = seed;
+        long p = mask;
+        if ((down >>> 1 & p & ~down) != 0) {
+            down |= p & down >>> 1;
+            p &= p >>> 1;
+            down |= p & down >>> 2;
+            p &= p >>> 2;
+            down |= p & down >>> 4;
+            p &= p >>> 4;
+            down |= p & down >>> 8;
+            p &= p >>> 8;
+            down |= p & down >>> 16;
+            p &= p >>> 16;
+            down |= p & down >>> 32;
+        }
+        return up | down;
+    }
+
+    // (r, c) を含む連結成分が収穫できれば収穫してそのサイズを返す。収穫できないか、(r, c) が収穫済みなら 0 を返す
+    int remove(int r, int c) {
+        Arrays.fill(work, workLo, workHi + 1, 0);
+        if (isRemoved(r, c)) {
+            workLo = 0;
+            workHi = -1;
+            return 0;
+        }
+        int v = get(r, c);
+        int size = fill(r, c, work);
+        workLo = lo;
+        workHi = hi;
+        if (size < v) return 0;
+        long[] mask = layers[v];
+        for (int i = lo; i <= hi; i++) {
+            mask[i] &= ~work[i];
+            removed[i] |= work[i];
+        }
+        return size;
+    }
+
+    // 直前の remove で収穫した区画のマスク。remove が 0 を返した場合は、収穫しなかった連結成分のマスク (収穫済みの区画を指定した場合は空)
+    long[] lastComponent() {
+        return work;
+    }
+
+    // マスクに含まれる区画を r * N + c の昇順で cells に書き出し、その数を返す
+    static int toCells(long[] mask, int n, int[] cells) {
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            for (long bits = mask[i]; bits != 0; bits &= bits - 1) {
+                cells[count++] = i * n + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return count;
+    }
+}
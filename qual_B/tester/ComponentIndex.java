@@ -0,0 +1,313 @@
+import java.util.Arrays;
+
+// 盤面の連結成分 (上下左右に隣接する同じ値の区画の集まり) を、操作のたびに変化した成分だけ見て管理する。
+// 各区画の成分番号・各成分のサイズと値・収穫できる成分 (サイズが値以上) の一覧を常に最新に保つので、
+// 収穫できる成分の列挙や、ある区画の値を増やすと収穫できるようになるかの判定で盤面全体を探索し直す必要がない。
+// 区画は r * N + c で表す。回答プログラムに流用してもかまわない。
+class ComponentIndex {
+    static final int REMOVED = Integer.MIN_VALUE;
+    private static final int NONE = -1;
+    private static final int[] DR = {1, 0, -1, 0};
+    private static final int[] DC = {0, 1, 0, -1};
+
+    final int N;
+    // 各区画の値。収穫済みなら REMOVED
+    private final int[] a;
+    // 各区画の成分番号。収穫済みなら NONE
+    private final int[] comp;
+    // 成分番号ごとのサイズ・値・含まれる区画の 1 つ
+    private final int[] size;
+    private final int[] value;
+    private final int[] anyCell;
+    // 使われていない成分番号
+    private final int[] freeIds;
+    private int freeCount;
+    // 収穫できる成分の番号の一覧と、各成分の一覧内での位置 (含まれなければ NONE)
+    private final int[] harvestable;
+    private final int[] harvestablePos;
+    private int harvestableCount;
+    // 探索用の作業領域
+    private final int[] queue;
+    private final int[] visited;
+    private int stamp;
+    private final int[] starts = new int[4];
+    // 各区画の上下左右の区画 (4 * p + 方向)。盤面の外なら NONE
+    private final int[] adjacent;
+
+    ComponentIndex(TestCase testcase) {
+        N = testcase.N;
+        a = new int[N * N];
+        comp = new int[N * N];
+        size = new int[N * N];
+        value = new int[N * N];
+        anyCell = new int[N * N];
+        freeIds = new int[N * N];
+        harvestable = new int[N * N];
+        harvestablePos = new int[N * N];
+        queue = new int[N * N];
+        visited = new int[N * N];
+        adjacent = new int[4 * N * N];
+        for (int p = 0; p < N * N; p++) {
+            for (int j = 0; j < 4; j++) {
+                int r = p / N + DR[j];
+                int c = p % N + DC[j];
+                adjacent[4 * p + j] = 0 <= r && r < N && 0 <= c && c < N ? r * N + c : NONE;
+            }
+        }
+        for (int i = 0; i < N; i++) {
+            System.arraycopy(testcase.A[i], 0, a, i * N, N);
+        }
+        for (int id = N * N - 1; id >= 0; id--) {
+            freeIds[freeCount++] = id;
+            harvestablePos[id] = NONE;
+        }
+        Arrays.fill(comp, NONE);
+        for (int p = 0; p < N * N; p++) {
+            if (comp[p] != NONE) continue;
+            int id = allocate(a[p], p);
+            size[id] = relabel(p, NONE, id);
+            update(id);
+        }
+    }
+
+    int get(int r, int c) {
+        return a[r * N + c];
+    }
+
+    boolean isRemoved(int r, int c) {
+        return a[r * N + c] == REMOVED;
+    }
+
+    // (r, c) を含む成分の番号。収穫済みなら -1
+    int componentId(int r, int c) {
+        return comp[r * N + c];
+    }
+
+    int componentSize(int r, int c) {
+        int id = comp[r * N + c];
+        return id == NONE ? 0 : size[id];
+    }
+
+    boolean isHarvestable(int r, int c) {
+        int id = comp[r * N + c];
+        return id != NONE && harvestablePos[id] != NONE;
+    }
+
+    // 収穫できる成分の数
+    int harvestableCount() {
+        return harvestableCount;
+    }
+
+    // k 番目 (0 <= k < harvestableCount()) の収穫できる成分に含まれる区画の 1 つ。
+    // 順序は操作によって変わる
+    int harvestableCell(int k) {
+        return anyCell[harvestable[k]];
+    }
+
+    // (r, c) の値を 1 増やしたときに、(r, c) を含む成分が収穫できるようになるか。
+    // 元の成分が分かれてできる成分は元より小さく値も同じなので、収穫できるようになることはない
+    boolean wouldBecomeHarvestable(int r, int c) {
+        int p = r * N + c;
+        if (a[p] == REMOVED) return false;
+        int v = a[p] + 1;
+        int total = 1;
+        int seen0 = NONE, seen1 = NONE, seen2 = NONE;
+        for (int j = 0; j < 4; j++) {
+            int q = neighbor(p, j);
+            if (q == NONE || a[q] != v) continue;
+            int id = comp[q];
+            if (id == seen0 || id == seen1 || id == seen2) continue;
+            if (seen0 == NONE) {
+                seen0 = id;
+            } else if (seen1 == NONE) {
+                seen1 = id;
+            } else {
+                seen2 = id;
+            }
+            total += size[id];
+        }
+        return total >= v;
+    }
+
+    // (r, c) を含む成分の区画を cells に書き出し、その数を返す
+    int cells(int r, int c, int[] cells) {
+        int p = r * N + c;
+        if (comp[p] == NONE) return 0;
+        int id = ++stamp;
+        int count = 0;
+        cells[count++] = p;
+        visited[p] = id;
+        for (int i = 0; i < count; i++) {
+            int q = cells[i];
+            for (int j = 0; j < 4; j++) {
+                int nq = neighbor(q, j);
+                if (nq != NONE && comp[nq] == comp[p] && visited[nq] != id) {
+                    visited[nq] = id;
+                    cells[count++] = nq;
+                }
+            }
+        }
+        return count;
+    }
+
+    // (r, c) の値を 1 増やす。(r, c) が元の成分から抜けて分かれた部分と、新しい値の隣接成分との結合だけを更新する
+    void increment(int r, int c) {
+        int p = r * N + c;
+        leave(p);
+        int v = ++a[p];
+        // 隣接する同じ値の成分のうち最大のものに、残りの成分と p をまとめる
+        int keep = NONE;
+        for (int j = 0; j < 4; j++) {
+            int q = neighbor(p, j);
+            if (q != NONE && a[q] == v && (keep == NONE || size[comp[q]] > size[keep])) keep = comp[q];
+        }
+        if (keep == NONE) {
+            int id = allocate(v, p);
+            comp[p] = id;
+            size[id] = 1;
+            update(id);
+            return;
+        }
+        comp[p] = keep;
+        size[keep]++;
+        for (int j = 0; j < 4; j++) {
+            int q = neighbor(p, j);
+            if (q == NONE || a[q] != v || comp[q] == keep) continue;
+            int other = comp[q];
+            size[keep] += relabel(q, other, keep);
+            release(other);
+        }
+        update(keep);
+    }
+
+    // (r, c) を含む成分が収穫できれば収穫し、収穫した区画を (r, c) からの幅優先順で cells に書き出してその数を返す。
+    // 収穫できなければ 0 を返す
+    int remove(int r, int c, int[] cells) {
+        int p = r * N + c;
+        int id = comp[p];
+        if (id == NONE || size[id] < value[id]) return 0;
+        int count = 0;
+        cells[count++] = p;
+        comp[p] = NONE;
+        for (int i = 0; i < count; i++) {
+            int q = cells[i];
+            a[q] = REMOVED;
+            for (int j = 0; j < 4; j++) {
+                int nq = neighbor(q, j);
+                if (nq != NONE && comp[nq] == id) {
+                    comp[nq] = NONE;
+                    cells[count++] = nq;
+                }
+            }
+        }
+        release(id);
+        return count;
+    }
+
+    // p を今の成分から抜く。成分が分かれた場合は、分かれた部分に新しい番号を振る
+    private void leave(int p) {
+        int id = comp[p];
+        comp[p] = NONE;
+        // まだどの部分に属するか分かっていない、p に隣接する同じ成分の区画を starts に集める
+        int k = 0;
+        for (int j = 0; j < 4; j++) {
+            int q = neighbor(p, j);
+            if (q != NONE && comp[q] == id) starts[k++] = q;
+        }
+        if (k == 0) {
+            release(id);
+            return;
+        }
+        size[id]--;
+        anyCell[id] = starts[0];
+        // 隣接する区画が 2 つ以上あれば分かれたかもしれない。
+        // 1 つから探索して残りにすべて届けば、そこで打ち切る
+        while (k >= 2) {
+            int mark = ++stamp;
+            int count = 0;
+            queue[count++] = starts[0];
+            visited[starts[0]] = mark;
+            int reached = 0;
+            for (int i = 0; i < count && reached < k - 1; i++) {
+                int q = queue[i];
+                for (int j = 0; j < 4; j++) {
+                    int nq = neighbor(q, j);
+                    if (nq == NONE || comp[nq] != id || visited[nq] == mark) continue;
+                    visited[nq] = mark;
+                    queue[count++] = nq;
+                    for (int s = 1; s < k; s++) {
+                        if (starts[s] == nq) reached++;
+                    }
+                }
+            }
+            if (reached == k - 1) break;
+            // starts[0] を含む部分が分かれた。探索し終えた区画に新しい番号を振る
+            int split = allocate(value[id], starts[0]);
+            for (int i = 0; i < count; i++) {
+                comp[queue[i]] = split;
+            }
+            size[split] = count;
+            size[id] -= count;
+            update(split);
+            // 届かなかった区画について続ける
+            int rest = 0;
+            for (int s = 1; s < k; s++) {
+                if (visited[starts[s]] != mark) starts[rest++] = starts[s];
+            }
+            k = rest;
+            anyCell[id] = starts[0];
+        }
+        update(id);
+    }
+
+    // p から幅優先で comp が from の区画をたどり、comp を to に書き換えてその数を返す
+    private int relabel(int p, int from, int to) {
+        int count = 0;
+        queue[count++] = p;
+        comp[p] = to;
+        for (int i = 0; i < count; i++) {
+            int q = queue[i];
+            for (int j = 0; j < 4; j++) {
+                int nq = neighbor(q, j);
+                if (nq != NONE && comp[nq] == from && a[nq] == a[p]) {
+                    comp[nq] = to;
+                    queue[count++] = nq;
+                }
+            }
+        }
+        return count;
+    }
+
+    private int neighbor(int p, int j) {
+        return adjacent[4 * p + j];
+    }
+
+    private int allocate(int v, int cell) {
+        int id = freeIds[--freeCount];
+        value[id] = v;
+        anyCell[id] = cell;
+        size[id] = 0;
+        return id;
+    }
+
+    private void release(int id) {
+        size[id] = 0;
+        update(id);
+        freeIds[freeCount++] = id;
+    }
+
+    // 成分 id が収穫できるかどうかに合わせて一覧を更新する
+    private void update(int id) {
+        boolean ok = size[id] > 0 && size[id] >= value[id];
+        int pos = harvestablePos[id];
+        if (ok && pos == NONE) {
+            harvestablePos[id] = harvestableCount;
+            harvestable[harvestableCount++] = id;
+        } else if (!ok && pos != NONE) {
+            int last = harvestable[--harvestableCount];
+            harvestable[pos] = last;
+            harvestablePos[last] = pos;
+            harvestablePos[id] = NONE;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Java Flight Recorder のイベント。記録していないときは commit しても何もしない。
+// java -XX:StartFlightRecording=filename=rec.jfr Judge ... で記録し、jfr print --events 'rcoc.*' rec.jfr で見られる
+class Events {
+    @Name("rcoc.qual_B.Score")
+    @Label("Judge.score")
+    @Category({"RCOC", "qual_B"})
+    static class Score extends Event {
+        @Label("Score")
+        int score;
+    }
+
+    @Name("rcoc.qual_B.Parse")
+    @Label("Parse")
+    @Category({"RCOC", "qual_B"})
+    static class Parse extends Event {
+        @Label("Operations")
+        int operations;
+    }
+
+    @Name("rcoc.qual_B.Simulate")
+    @Label("Simulate")
+    @Category({"RCOC", "qual_B"})
+    static class Simulate extends Event {
+        @Label("Operations")
+        int operations;
+        @Label("Harvests")
+        int harvests;
+        @Label("Ignored")
+        int ignored;
+    }
+
+    @Name("rcoc.qual_B.Remove")
+    @Label("Remove")
+    @Category({"RCOC", "qual_B"})
+    @StackTrace(false)
+    static class Remove extends Event {
+        @Label("Row")
+        int row;
+        @Label("Column")
+        int column;
+        @Label("Value")
+        int value;
+        // 連結成分の大きさ (フラッドフィルで訪れる区画の数)
+        @Label("Size")
+        int size;
+        @Label("Harvested")
+        boolean harvested;
+    }
+
+    @Name("rcoc.qual_B.Generate")
+    @Label("TestCase(seed)")
+    @Category({"RCOC", "qual_B"})
+    static class Generate extends Event {
+        @Label("Seed")
+        long seed;
+        @Label("Cells")
+        int cells;
+    }
+}
@@ -1,131 +1,217 @@
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
 import java.util.Scanner;
 
 public class Judge {
 
-    private static final int[] DR = {1, 0, -1, 0};
-    private static final int[] DC = {0, 1, 0, -1};
-    private static final int REMOVED = Integer.MIN_VALUE;
-
-    static class Position {
-        int r, c;
-
-        Position(int r, int c) {
-            this.r = r;
-            this.c = c;
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (!(o instanceof Position)) return false;
-            Position another = (Position) o;
-            return r == another.r && c == another.c;
-        }
-    }
+    // 得点計算の規則を変えたら変える。ScoreCache のキーに含まれる
+    static final String VERSION = "qual_B-1";
 
     static class Output {
-        ArrayList<Integer> r = new ArrayList<>();
-        ArrayList<Integer> c = new ArrayList<>();
-        ArrayList<Boolean> isRm = new ArrayList<>();
-        int[][] a;
+        // 操作の数と、各操作の座標・種類
+        int size;
+        int[] r;
+        int[] c;
+        boolean[] isRm;
+        // 盤面と連結成分
+        ComponentIndex board;
+        // 直前の remove で収穫した区画の数。区画は stack[0, harvested) に入っている
+        int[] stack;
+        int harvested;
 
-        Output(Scanner sc, TestCase testcase) {
-            int lineno = 0;
-            while (sc.hasNextLine()) {
-                lineno++;
-                String line = sc.nextLine();
-                String[] elems = line.trim().split("\\s+");
-                boolean isEmptyLine = elems.length == 0 || (elems.length == 1 && elems[0].isEmpty());
-                if (isEmptyLine && r.size() == testcase.M) continue;
-                if (elems.length != 3) {
-                    throw new RuntimeException("line " + lineno + ": 不正な出力です " + line);
+        Output(OutputTokenizer tokenizer, TestCase testcase) {
+            r = new int[testcase.M + 1];
+            c = new int[testcase.M + 1];
+            isRm = new boolean[testcase.M + 1];
+            while (tokenizer.hasNextLine()) {
+                tokenizer.nextLine();
+                int lineno = tokenizer.lineNumber();
+                boolean isEmptyLine = tokenizer.tokenCount() == 0;
+                if (isEmptyLine && size == testcase.M) continue;
+                if (tokenizer.tokenCount() != 3) {
+                    throw new RuntimeException("line " + lineno + ": 不正な出力です " + tokenizer.line());
                 }
-                if (elems[0].equals("1")) {
-                    isRm.add(false);
-                } else if (elems[0].equals("2")) {
-                    isRm.add(true);
+                if (tokenizer.tokenEquals(0, "1")) {
+                    isRm[size] = false;
+                } else if (tokenizer.tokenEquals(0, "2")) {
+                    isRm[size] = true;
                 } else {
-                    throw new RuntimeException("line " + lineno + ": 不正な出力です " + line);
+                    throw new RuntimeException("line " + lineno + ": 不正な出力です " + tokenizer.line());
                 }
-                int rv = Integer.parseInt(elems[1]);
-                int cv = Integer.parseInt(elems[2]);
-                r.add(rv);
-                c.add(cv);
-                if (r.size() > testcase.M) {
+                r[size] = tokenizer.intToken(1);
+                c[size] = tokenizer.intToken(2);
+                size++;
+                if (size > testcase.M) {
                     throw new RuntimeException(testcase.M + "回より多い操作を行おうとしました");
                 }
             }
-            a = new int[testcase.N][];
-            for (int i = 0; i < testcase.N; i++) {
-                a[i] = testcase.A[i].clone();
-            }
+            board = new ComponentIndex(testcase);
+            stack = new int[testcase.N * testcase.N];
         }
 
         void increment(TestCase testcase, int cr, int cc) {
-            a[cr][cc]++;
+            board.increment(cr, cc);
         }
 
         int remove(TestCase testcase, int cr, int cc) {
-            ArrayList<Position> list = new ArrayList<>();
-            list.add(new Position(cr, cc));
-            for (int i = 0; i < list.size(); i++) {
-                for (int j = 0; j < 4; j++) {
-                    int nr = list.get(i).r + DR[j];
-                    int nc = list.get(i).c + DC[j];
-                    Position np = new Position(nr, nc);
-                    if (0 <= nr && nr < testcase.N && 0 <= nc && nc < testcase.N
-                            && a[nr][nc] == a[cr][cc] && !list.contains(np)) {
-                        list.add(np);
-                    }
-                }
-            }
-            if (list.size() >= a[cr][cc]) {
-                int ret = list.size() * a[cr][cc];
-                for (Position p : list) {
-                    a[p.r][p.c] = REMOVED;
-                }
-                return ret;
-            } else {
-                return 0;
+            Events.Remove event = new Events.Remove();
+            event.begin();
+            int v = board.get(cr, cc);
+            int size = board.componentSize(cr, cc);
+            harvested = board.remove(cr, cc, stack);
+            if (event.shouldCommit()) {
+                event.row = cr;
+                event.column = cc;
+                event.value = v;
+                event.size = size;
+                event.harvested = harvested > 0;
+                event.commit();
             }
+            Metrics.record("remove.size", size);
+            return harvested * v;
         }
     }
 
+    // 各操作の種類 (トレースに書き出す値)
+    static final int STEP_IGNORED = 0;
+    static final int STEP_INCREMENT = 1;
+    static final int STEP_HARVEST = 2;
+
     static int calcScore(TestCase testcase, Output output) {
+        return calcScore(testcase, output, null);
+    }
+
+    // trace が null でなければ、各操作による得点の変化と変化した区画を書き出す
+    static int calcScore(TestCase testcase, Output output, TraceWriter trace) {
+        Events.Simulate event = new Events.Simulate();
+        event.begin();
+        long start = System.nanoTime();
+        int harvests = 0;
+        int ignored = 0;
+        if (trace != null) {
+            trace.writeVarint(testcase.N);
+            trace.writeVarint(output.size);
+            for (int i = 0; i < testcase.N; i++) {
+                for (int j = 0; j < testcase.N; j++) {
+                    trace.writeVarint(testcase.A[i][j]);
+                }
+            }
+        }
         int score = 0;
-        for (int i = 0; i < output.r.size(); i++) {
-            int cr = output.r.get(i);
-            int cc = output.c.get(i);
+        for (int i = 0; i < output.size; i++) {
+            int cr = output.r[i];
+            int cc = output.c[i];
             if (cr < 0 || testcase.N <= cr || cc < 0 || testcase.N <= cc) {
                 throw new RuntimeException("line " + (i + 1) + ": 座標が範囲外です (" + cr + "," + cc + ")");
             }
-            if (output.a[cr][cc] == REMOVED) {
+            if (output.board.isRemoved(cr, cc)) {
                 System.err.println("[warning] line " + (i + 1) + ": すでに収穫済みの区画を操作しようとしました。無視します (" + cr + "," + cc + ")");
-            } else if (output.isRm.get(i)) {
+                ignored++;
+                if (trace != null) trace.writeVarint(STEP_IGNORED);
+            } else if (output.isRm[i]) {
                 int scoreDiff = output.remove(testcase, cr, cc);
                 if (scoreDiff == 0) {
                     System.err.println("[warning] line " + (i + 1) + ": 収穫しようとした区画が条件を満たしていません。無視します (" + cr + "," + cc + ")");
+                    ignored++;
+                    if (trace != null) trace.writeVarint(STEP_IGNORED);
+                } else {
+                    harvests++;
+                    if (trace != null) {
+                        trace.writeVarint(STEP_HARVEST);
+                        trace.writeVarint(scoreDiff);
+                        trace.writeVarint(output.harvested);
+                        for (int k = 0; k < output.harvested; k++) {
+                            trace.writeVarint(output.stack[k]);
+                        }
+                    }
                 }
                 score += scoreDiff;
             } else {
                 output.increment(testcase, cr, cc);
+                if (trace != null) {
+                    trace.writeVarint(STEP_INCREMENT);
+                    trace.writeVarint(cr * testcase.N + cc);
+                }
             }
         }
+        if (trace != null) trace.writeVarint(score);
+        event.operations = output.size;
+        event.harvests = harvests;
+        event.ignored = ignored;
+        event.commit();
+        Metrics.time("judge.simulate_ns", start);
+        Metrics.count("judge.operations", output.size);
+        Metrics.count("remove.harvested", harvests);
+        Metrics.count("judge.ignored", ignored);
+        return score;
+    }
+
+    static int score(Path inputFile, Path outputFile) throws IOException {
+        return score(inputFile, outputFile, null);
+    }
+
+    // traceFile が null でなければ、得点計算の過程をそのファイルに書き出す
+    static int score(Path inputFile, Path outputFile, Path traceFile) throws IOException {
+        Events.Score event = new Events.Score();
+        event.begin();
+        long start = System.nanoTime();
+        Events.Parse parse = new Events.Parse();
+        parse.begin();
+        TestCase testcase;
+        try (Scanner sc = new Scanner(inputFile)) {
+            testcase = new TestCase(sc);
+        }
+        Output output = new Output(OutputTokenizer.open(outputFile), testcase);
+        parse.operations = output.size;
+        parse.commit();
+        Metrics.time("judge.parse_ns", start);
+        int score;
+        if (traceFile == null) {
+            score = calcScore(testcase, output);
+        } else {
+            try (TraceWriter trace = new TraceWriter(traceFile)) {
+                score = calcScore(testcase, output, trace);
+            }
+        }
+        event.score = score;
+        event.commit();
+        Metrics.time("judge.total_ns", start);
+        Metrics.record("judge.score", score);
+        Metrics.count("judge.cases", 1);
         return score;
     }
 
     public static void main(String[] args) throws Exception {
         if (args.length < 2) {
-            System.err.println("usage: java Judge input_file_path output_file_path");
+            System.err.println("usage: java Judge input_file_path output_file_path [-trace trace_file_path] [-cache cache_dir] [-cache-size N] [-metrics metrics_file]");
             System.exit(1);
         }
         Path inputFile = Paths.get(args[0]);
         Path outputFile = Paths.get(args[1]);
-        TestCase testcase = new TestCase(new Scanner(inputFile));
-        Output output = new Output(new Scanner(outputFile), testcase);
-        int score = calcScore(testcase, output);
+        Path traceFile = null;
+        Path cacheDir = null;
+        int cacheSize = ScoreCache.DEFAULT_CAPACITY;
+        for (int i = 2; i < args.length; ++i) {
+            if (args[i].equals("-trace")) {
+                traceFile = Paths.get(args[++i]);
+            } else if (args[i].equals("-cache")) {
+                cacheDir = Paths.get(args[++i]);
+            } else if (args[i].equals("-cache-size")) {
+                cacheSize = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-metrics")) {
+                Metrics.writeAtExit(Paths.get(args[++i]));
+            }
+        }
+        int score;
+        // トレースを書き出すときは計算し直す
+        if (cacheDir != null && traceFile == null) {
+            try (ScoreCache cache = new ScoreCache(cacheDir, VERSION, cacheSize)) {
+                score = cache.score(inputFile, outputFile, Judge::score);
+            }
+        } else {
+            score = score(inputFile, outputFile, traceFile);
+        }
         System.out.println("score:" + score);
     }
 
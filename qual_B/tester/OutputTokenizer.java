@@ -0,0 +1,146 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+// 出力ファイルを 1 行ずつ空白区切りのトークンに分け、文字列を作らずに整数として読む。
+// 行の区切りと空白の扱いは Scanner.nextLine() と String.trim().split("\\s+") に合わせている。
+// 文字列を作るのはエラーメッセージ用に line() や tokenString() を呼んだときだけ。
+class OutputTokenizer {
+    private final ByteBuffer buf;
+    private final int limit;
+    private int pos;
+    private int lineStart, lineEnd;
+    private int lineNumber;
+    private int tokenCount;
+    private int[] tokenStart = new int[4];
+    private int[] tokenEnd = new int[4];
+
+    OutputTokenizer(ByteBuffer buf) {
+        this.buf = buf;
+        this.pos = buf.position();
+        this.limit = buf.limit();
+    }
+
+    static OutputTokenizer open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new OutputTokenizer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    boolean hasNextLine() {
+        return pos < limit;
+    }
+
+    void nextLine() {
+        if (pos >= limit) throw new NoSuchElementException("No line found");
+        lineNumber++;
+        lineStart = pos;
+        while (pos < limit && buf.get(pos) != '\n' && buf.get(pos) != '\r') pos++;
+        lineEnd = pos;
+        if (pos < limit && buf.get(pos++) == '\r' && pos < limit && buf.get(pos) == '\n') pos++;
+
+        tokenCount = 0;
+        // trim() と同じく前後の ' ' 以下の文字を除き、その内側は split("\\s+") と同じく 6 種類の空白文字だけで区切る。
+        // NUL などの制御文字を区切りとして扱うと、従来は不正とした出力を受け付けてしまう
+        int i = lineStart;
+        int end = lineEnd;
+        while (i < end && isTrimmed(buf.get(i))) i++;
+        while (i < end && isTrimmed(buf.get(end - 1))) end--;
+        while (true) {
+            while (i < end && isSpace(buf.get(i))) i++;
+            if (i == end) break;
+            if (tokenCount == tokenStart.length) {
+                tokenStart = Arrays.copyOf(tokenStart, tokenCount * 2);
+                tokenEnd = Arrays.copyOf(tokenEnd, tokenCount * 2);
+            }
+            tokenStart[tokenCount] = i;
+            while (i < end && !isSpace(buf.get(i))) i++;
+            tokenEnd[tokenCount++] = i;
+        }
+    }
+
+    private static boolean isTrimmed(byte b) {
+        return b >= 0 && b <= ' ';
+    }
+
+    // 正規表現の \s
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+    }
+
+    // 1 始まりの行番号
+    int lineNumber() {
+        return lineNumber;
+    }
+
+    int tokenCount() {
+        return tokenCount;
+    }
+
+    boolean tokenEquals(int k, String s) {
+        int start = tokenStart[k];
+        if (tokenEnd[k] - start != s.length()) return false;
+        for (int i = 0; i < s.length(); i++) {
+            if (buf.get(start + i) != s.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    // k 番目のトークンを Integer.parseInt と同じ規則で読む
+    int intToken(int k) {
+        return parseInt(tokenStart[k], tokenEnd[k]);
+    }
+
+    // 前後の空白を除いた行全体を Integer.parseInt と同じ規則で読む
+    int lineAsInt() {
+        if (tokenCount == 0) return parseInt(lineStart, lineStart);
+        return parseInt(tokenStart[0], tokenEnd[tokenCount - 1]);
+    }
+
+    private int parseInt(int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buf.get(i) == '-' || buf.get(i) == '+')) {
+            negative = buf.get(i) == '-';
+            i++;
+        }
+        if (i == end) throw invalidNumber(start, end);
+        // 負の値で累積して Integer.MIN_VALUE まで表す
+        int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        int multmin = limit / 10;
+        int v = 0;
+        for (; i < end; i++) {
+            int d = buf.get(i) - '0';
+            if (d < 0 || 9 < d || v < multmin) throw invalidNumber(start, end);
+            v *= 10;
+            if (v < limit + d) throw invalidNumber(start, end);
+            v -= d;
+        }
+        return negative ? v : -v;
+    }
+
+    private NumberFormatException invalidNumber(int start, int end) {
+        return new NumberFormatException("For input string: \"" + text(start, end) + "\"");
+    }
+
+    String tokenString(int k) {
+        return text(tokenStart[k], tokenEnd[k]);
+    }
+
+    // 改行文字を除いた現在の行
+    String line() {
+        return text(lineStart, lineEnd);
+    }
+
+    private String text(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buf.get(start + i);
+        }
+        return new String(bytes);
+    }
+}
@@ -1,3 +1,4 @@
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Scanner;
 
@@ -37,6 +38,9 @@ public class TestCase {
     }
 
     TestCase(long seed) {
+        Events.Generate event = new Events.Generate();
+        event.begin();
+        long start = System.nanoTime();
         rnd = new XorShift();
         rnd.setSeed(seed);
         this.N = N_FIXED;
@@ -47,6 +51,11 @@ public class TestCase {
                 this.A[i][j] = rnd.nextInt(MAX_A - MIN_A + 1) + MIN_A;
             }
         }
+        event.seed = seed;
+        event.cells = N * N;
+        event.commit();
+        Metrics.time("generate.total_ns", start);
+        Metrics.count("generate.cases", 1);
     }
 
     TestCase(Scanner sc) {
@@ -60,6 +69,32 @@ public class TestCase {
         }
     }
 
+    // Corpus から読む。N, M (int) と各マスの値 (byte) が続く
+    TestCase(ByteBuffer buf) {
+        this.N = buf.getInt();
+        this.M = buf.getInt();
+        this.A = new int[N][N];
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < N; j++) {
+                this.A[i][j] = buf.get();
+            }
+        }
+    }
+
+    int binarySize() {
+        return 4 + 4 + N * N;
+    }
+
+    void writeTo(ByteBuffer buf) {
+        buf.putInt(N);
+        buf.putInt(M);
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < N; j++) {
+                buf.put((byte) A[i][j]);
+            }
+        }
+    }
+
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
@@ -0,0 +1,338 @@
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// 2 つの解答プログラム A, B を同じシードで実行し、シードごとの得点の差 (B - A) から B が A より良いかを逐次的に判定する。
+// シードをバッチに分けて順に実行し、バッチごとに検定して、有意になるか予算のシードを使い切ったところで止める
+public class Compare {
+    static final String TEST_CI = "ci";
+    static final String TEST_SPRT = "sprt";
+    // これより少ないシードでは判定しない。標本分散が不安定で、差がたまたますべて同じ (標準誤差が 0) になることもある
+    static final int DEFAULT_MIN_SEEDS = 30;
+
+    // 1 つのシードの結果。エラーのときは 0 点として扱う
+    static class Pair {
+        long seed;
+        int scoreA;
+        int scoreB;
+        String errorA;
+        String errorB;
+
+        long diff() {
+            return (long) scoreB - scoreA;
+        }
+    }
+
+    // 得点の差の平均と分散 (Welford の方法で更新する)
+    static class Stats {
+        int n;
+        long sumA;
+        long sumB;
+        int errorsA;
+        int errorsB;
+        double mean;
+        private double m2;
+
+        void add(Pair pair) {
+            n++;
+            sumA += pair.scoreA;
+            sumB += pair.scoreB;
+            if (pair.errorA != null) errorsA++;
+            if (pair.errorB != null) errorsB++;
+            double d = pair.diff();
+            double delta = d - mean;
+            mean += delta / n;
+            m2 += delta * (d - mean);
+        }
+
+        // 標本分散 (n - 1 で割る)
+        double variance() {
+            return n < 2 ? 0 : m2 / (n - 1);
+        }
+
+        double stderr() {
+            return Math.sqrt(variance() / n);
+        }
+    }
+
+    private final String problem;
+    // final_A では Tester.command が static なので、A と B で別のクラスローダーのテスターを使う
+    private final Worker.Problem testerA;
+    private final Worker.Problem testerB;
+    private final String commandA;
+    private final String commandB;
+    private final long timeLimitMillis;
+
+    Compare(String problem, Path classes, String commandA, String commandB, long timeLimitMillis) throws Exception {
+        this.problem = problem;
+        this.testerA = new Worker.Problem(problem, classes.resolve(problem));
+        this.testerB = new Worker.Problem(problem, classes.resolve(problem));
+        this.commandA = commandA;
+        this.commandB = commandB;
+        this.timeLimitMillis = timeLimitMillis;
+        if (!Protocol.isJudgeProblem(problem) && timeLimitMillis > 0) {
+            testerA.setTimeLimit(timeLimitMillis);
+            testerB.setTimeLimit(timeLimitMillis);
+        }
+    }
+
+    Pair run(long seed) throws Exception {
+        Pair pair = new Pair();
+        pair.seed = seed;
+        Path input = null;
+        try {
+            if (Protocol.isJudgeProblem(problem)) {
+                input = Files.createTempFile("compare-", ".in");
+                Files.write(input, testerA.generate(seed).getBytes(StandardCharsets.UTF_8));
+            }
+            // 実行する順序による偏り (直前の実行の影響、CPU の周波数の変化など) が片方に寄らないよう、シードごとに A と B の順序を入れ替える
+            boolean aFirst = (seed & 1) == 0;
+            for (int k = 0; k < 2; k++) {
+                boolean a = (k == 0) == aFirst;
+                int score = 0;
+                String error = null;
+                try {
+                    score = score(a ? testerA : testerB, a ? commandA : commandB, seed, input);
+                } catch (Exception e) {
+                    error = e.getMessage() != null ? e.getMessage() : e.toString();
+                }
+                if (a) {
+                    pair.scoreA = score;
+                    pair.errorA = error;
+                } else {
+                    pair.scoreB = score;
+                    pair.errorB = error;
+                }
+            }
+        } finally {
+            if (input != null) Files.deleteIfExists(input);
+        }
+        return pair;
+    }
+
+    private int score(Worker.Problem tester, String command, long seed, Path input) throws Exception {
+        if (input == null) {
+            return tester.execute(command, seed);
+        }
+        Path output = Files.createTempFile("compare-", ".out");
+        try {
+            Process proc = new ProcessBuilder(command.split("\\s+"))
+                    .redirectInput(input.toFile())
+                    .redirectOutput(output.toFile())
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            if (timeLimitMillis > 0) {
+                if (!proc.waitFor(timeLimitMillis, TimeUnit.MILLISECONDS)) {
+                    proc.destroyForcibly();
+                    // 終了を待たないとゾンビプロセスが残る
+                    proc.waitFor();
+                    throw new RuntimeException("制限時間 " + timeLimitMillis + " ms を超過しました");
+                }
+            } else {
+                proc.waitFor();
+            }
+            if (proc.exitValue() != 0) {
+                throw new RuntimeException("解答プログラムが終了コード " + proc.exitValue() + " で終了しました");
+            }
+            return tester.judge(input, output);
+        } finally {
+            Files.deleteIfExists(output);
+        }
+    }
+
+    // 標準正規分布の累積分布関数 (Abramowitz and Stegun 26.2.17、誤差 7.5e-8 以下)
+    static double normalCdf(double x) {
+        if (x < 0) return 1 - normalCdf(-x);
+        double t = 1 / (1 + 0.2316419 * x);
+        double poly = t * (0.319381530 + t * (-0.356563782 + t * (1.781477937 + t * (-1.821255978 + t * 1.330274429))));
+        return 1 - Math.exp(-x * x / 2) / Math.sqrt(2 * Math.PI) * poly;
+    }
+
+    // normalCdf(x) = p となる x (二分法)
+    static double normalQuantile(double p) {
+        double lo = -40;
+        double hi = 40;
+        for (int i = 0; i < 100; i++) {
+            double mid = (lo + hi) / 2;
+            if (normalCdf(mid) < p) {
+                lo = mid;
+            } else {
+                hi = mid;
+            }
+        }
+        return (lo + hi) / 2;
+    }
+
+    // 自由度 df の t 分布で、標準正規分布の分位点 z に対応する分位点 (Abramowitz and Stegun 26.7.5)。
+    // df が小さいと誤差が大きくなるが、判定するのは -min-seeds 以上のシードがあるときだけ
+    static double studentQuantile(double z, int df) {
+        double z2 = z * z;
+        double g1 = (z2 + 1) * z / 4;
+        double g2 = ((5 * z2 + 16) * z2 + 3) * z / 96;
+        double g3 = (((3 * z2 + 19) * z2 + 17) * z2 - 15) * z / 384;
+        double g4 = ((((79 * z2 + 776) * z2 + 1482) * z2 - 1920) * z2 - 945) * z / 92160;
+        return z + (g1 + (g2 + (g3 + g4 / df) / df) / df) / df;
+    }
+
+    static String csvField(String s) {
+        return s == null ? "" : Coordinator.csvField(s);
+    }
+
+    static void usage() {
+        System.err.println("usage: java Compare -problem problem -a \"command\" -b \"command\" [-seeds from..to] [-batch N] [-test ci|sprt] [-min-seeds N] [-alpha a] [-beta b] [-delta d] [-parallel P] [-classes dir] [-time-limit ms]");
+        System.exit(1);
+    }
+
+    public static void main(String[] args) throws Exception {
+        String problem = null;
+        String commandA = null;
+        String commandB = null;
+        String seeds = "1..1000";
+        int batch = 50;
+        String test = TEST_CI;
+        int minSeeds = DEFAULT_MIN_SEEDS;
+        double alpha = 0.05;
+        double beta = 0.05;
+        double delta = 0;
+        int parallel = Runtime.getRuntime().availableProcessors();
+        Path classes = Paths.get("build");
+        long timeLimitMillis = 0;
+        for (int i = 0; i < args.length; ++i) {
+            if (args[i].equals("-problem")) {
+                problem = args[++i];
+            } else if (args[i].equals("-a")) {
+                commandA = args[++i];
+            } else if (args[i].equals("-b")) {
+                commandB = args[++i];
+            } else if (args[i].equals("-seeds")) {
+                seeds = args[++i];
+            } else if (args[i].equals("-batch")) {
+                batch = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-test")) {
+                test = args[++i];
+            } else if (args[i].equals("-min-seeds")) {
+                minSeeds = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-alpha")) {
+                alpha = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("-beta")) {
+                beta = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("-delta")) {
+                delta = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("-parallel")) {
+                parallel = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-classes")) {
+                classes = Paths.get(args[++i]);
+            } else if (args[i].equals("-time-limit")) {
+                timeLimitMillis = Long.parseLong(args[++i]);
+            } else {
+                System.err.println("unknown option:" + args[i]);
+                usage();
+            }
+        }
+        if (problem == null || commandA == null || commandB == null || batch < 2 || minSeeds < 2 || parallel < 1
+                || !(alpha > 0 && alpha < 1) || !(beta > 0 && beta < 1)) {
+            usage();
+        }
+        if (!Protocol.isJudgeProblem(problem) && !problem.equals(Protocol.TESTER_PROBLEM)) {
+            System.err.println("unknown problem:" + problem);
+            usage();
+        }
+        if (!test.equals(TEST_CI) && !(test.equals(TEST_SPRT) && delta > 0)) {
+            System.err.println("-test は ci か sprt で、sprt には正の -delta が必要です");
+            usage();
+        }
+        String[] range = seeds.split("\\.\\.");
+        if (range.length != 2) usage();
+        long from = Long.parseLong(range[0]);
+        long to = Long.parseLong(range[1]);
+        if (from > to) usage();
+        long budget = to - from + 1;
+        if (budget < minSeeds) {
+            System.err.println("-seeds のシードの数が -min-seeds (" + minSeeds + ") より少ないと判定できません");
+            usage();
+        }
+
+        // ci: 判定するたびに有意水準 alpha の検定を繰り返すと誤って有意になる確率が増えるので、
+        // 判定の回数 (minSeeds 以上のシードがそろってから予算のシードを使い切るまでのバッチ数) で alpha を割り (Bonferroni 補正)、
+        // 分散を標本分散で置き換えるので t 分布の両側の信頼区間を使う
+        long looks = (budget + batch - 1) / batch - (minSeeds + batch - 1) / batch + 1;
+        double z = normalQuantile(1 - alpha / (2.0 * looks));
+        // sprt: H0 (差の平均が 0) と H1 (差の平均が delta) の対数尤度比の境界 (Wald)
+        double upper = Math.log((1 - beta) / alpha);
+        double lower = Math.log(beta / (1 - alpha));
+
+        Compare compare = new Compare(problem, classes, commandA, commandB, timeLimitMillis);
+        ExecutorService pool = Executors.newFixedThreadPool(parallel);
+        Stats stats = new Stats();
+        String decision = null;
+        System.out.println("seed,score_a,score_b,diff,error_a,error_b");
+        try {
+            for (long start = from; start <= to && decision == null; start += batch) {
+                long end = Math.min(to, start + batch - 1);
+                List<Future<Pair>> futures = new ArrayList<>();
+                for (long seed = start; seed <= end; seed++) {
+                    long s = seed;
+                    futures.add(pool.submit(() -> compare.run(s)));
+                }
+                for (Future<Pair> future : futures) {
+                    Pair pair = future.get();
+                    stats.add(pair);
+                    System.out.println(pair.seed + "," + pair.scoreA + "," + pair.scoreB + "," + pair.diff()
+                            + "," + csvField(pair.errorA) + "," + csvField(pair.errorB));
+                }
+                System.out.flush();
+
+                double se = stats.stderr();
+                String progress = String.format(Locale.ROOT, "seeds:%d mean_a:%.3f mean_b:%.3f mean_diff:%.3f stderr:%.3f",
+                        stats.n, (double) stats.sumA / stats.n, (double) stats.sumB / stats.n, stats.mean, se);
+                boolean enough = stats.n >= minSeeds;
+                if (test.equals(TEST_CI)) {
+                    double t = studentQuantile(z, stats.n - 1);
+                    double lo = stats.mean - t * se;
+                    double hi = stats.mean + t * se;
+                    progress += String.format(Locale.ROOT, " ci:[%.3f,%.3f]", lo, hi);
+                    // minSeeds 以上で差がすべて同じ (se = 0) ときは、0 でなければ区間は 0 を含まない
+                    if (enough && lo > 0) decision = "B";
+                    if (enough && hi < 0) decision = "A";
+                } else {
+                    double variance = stats.variance();
+                    // 正規分布で分散を標本分散で置き換えた対数尤度比。差がすべて同じなら、どちらの仮説に近いかで決める
+                    double llr = variance > 0
+                            ? delta / variance * (stats.mean - delta / 2) * stats.n
+                            : stats.mean > delta / 2 ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+                    progress += String.format(Locale.ROOT, " llr:%.3f bounds:[%.3f,%.3f]", llr, lower, upper);
+                    if (enough && llr >= upper) decision = "B";
+                    if (enough && llr <= lower) decision = "H0";
+                }
+                System.err.println(progress);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        if (decision == null) {
+            System.err.println("decision:undecided seeds:" + stats.n + " (予算のシードを使い切りました)");
+        } else {
+            String message;
+            if (decision.equals("B")) {
+                message = "B が A より良い";
+            } else if (decision.equals("A")) {
+                message = "A が B より良い";
+            } else {
+                message = "B の改善は delta 未満";
+            }
+            System.err.println("decision:" + decision + " seeds_to_decision:" + stats.n + " (" + message + ")");
+        }
+        if (stats.errorsA > 0 || stats.errorsB > 0) {
+            System.err.println("errors_a:" + stats.errorsA + " errors_b:" + stats.errorsB);
+        }
+    }
+}
@@ -0,0 +1,401 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// 採点の作業単位 (問題, 入力・出力ファイルまたはシード) を TCP で接続してきた Worker に配り、結果を集計する。
+// Worker は空きができるたびに作業単位を要求し、Coordinator は待ち行列の先頭から渡す。
+// 待ち行列が空になった後は、別の Worker が実行中の作業単位のうち最も古いものを重ねて渡し、先に返った結果を使う。
+// Worker との接続が切れる (または worker-timeout の間メッセージが届かない) と、その Worker が実行中だった作業単位を待ち行列の先頭に戻す
+public class Coordinator {
+    // Worker の異常終了がこの回数続いた作業単位はエラーにする
+    static final int MAX_ATTEMPTS = 3;
+
+    static class Task {
+        final long id;
+        final String problem;
+        final String name;
+        Path input;
+        Path output;
+        long seed;
+        String command;
+        // 実行中の Worker
+        final List<Connection> runners = new ArrayList<>();
+        int attempts;
+        boolean done;
+
+        Task(long id, String problem, String name) {
+            this.id = id;
+            this.problem = problem;
+            this.name = name;
+        }
+    }
+
+    static class Connection {
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+        String name;
+        // まだ渡していない要求の数
+        int credits;
+        final Set<Task> running = new HashSet<>();
+        int completed;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // すでに閉じている
+            }
+        }
+    }
+
+    static class Summary {
+        int cases;
+        int failed;
+        long sum;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+    }
+
+    private final List<Task> tasks = new ArrayList<>();
+    private final ArrayDeque<Task> queue = new ArrayDeque<>();
+    // 実行中の作業単位 (渡した順)
+    private final Map<Long, Task> inFlight = new LinkedHashMap<>();
+    private final List<Connection> connections = new ArrayList<>();
+    private final Map<String, Summary> summaries = new LinkedHashMap<>();
+    // 接続が切れた Worker の名前と完了数
+    private final List<String> lost = new ArrayList<>();
+    private int remaining;
+    private final int workerTimeoutMillis;
+
+    Coordinator(int workerTimeoutMillis) {
+        this.workerTimeoutMillis = workerTimeoutMillis;
+    }
+
+    // 入力ディレクトリと出力ディレクトリのファイルを名前で対応づける (BulkJudge と同じ)
+    void addJudgeTasks(String problem, Path inputDir, Path outputDir) throws IOException {
+        List<Path> inputFiles;
+        try (Stream<Path> files = Files.list(inputDir)) {
+            inputFiles = files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for (Path inputFile : inputFiles) {
+            Task task = new Task(tasks.size(), problem, inputFile.getFileName().toString());
+            task.input = inputFile;
+            task.output = outputDir.resolve(task.name);
+            add(task);
+        }
+    }
+
+    void addTesterTasks(long from, long to, String command) {
+        for (long seed = from; seed <= to; seed++) {
+            Task task = new Task(tasks.size(), Protocol.TESTER_PROBLEM, Long.toString(seed));
+            task.seed = seed;
+            task.command = command;
+            add(task);
+        }
+    }
+
+    private void add(Task task) {
+        tasks.add(task);
+        queue.add(task);
+        summaries.computeIfAbsent(task.problem, p -> new Summary()).cases++;
+        remaining++;
+    }
+
+    // 要求の残っている Worker に作業単位を割り当てる。送信はロックの外で行う
+    private synchronized List<Object[]> assign() {
+        List<Object[]> assignments = new ArrayList<>();
+        for (Connection connection : connections) {
+            while (connection.credits > 0) {
+                Task task = queue.pollFirst();
+                if (task == null) task = steal(connection);
+                if (task == null) break;
+                connection.credits--;
+                connection.running.add(task);
+                task.runners.add(connection);
+                inFlight.put(task.id, task);
+                assignments.add(new Object[]{connection, task});
+            }
+        }
+        return assignments;
+    }
+
+    // 別の Worker 1 つだけが実行中の、最も古い作業単位
+    private Task steal(Connection connection) {
+        for (Task task : inFlight.values()) {
+            if (task.runners.size() == 1 && task.runners.get(0) != connection) return task;
+        }
+        return null;
+    }
+
+    private void dispatch() {
+        while (true) {
+            List<Object[]> assignments = assign();
+            if (assignments.isEmpty()) return;
+            for (Object[] assignment : assignments) {
+                send((Connection) assignment[0], (Task) assignment[1]);
+            }
+        }
+    }
+
+    private void send(Connection connection, Task task) {
+        Protocol.Unit unit = new Protocol.Unit();
+        unit.id = task.id;
+        unit.problem = task.problem;
+        unit.name = task.name;
+        unit.seed = task.seed;
+        unit.command = task.command;
+        if (task.input != null) {
+            try {
+                if (!Files.isRegularFile(task.output)) {
+                    throw new IOException("出力ファイルがありません: " + task.output);
+                }
+                unit.input = Files.readAllBytes(task.input);
+                unit.output = Files.readAllBytes(task.output);
+            } catch (IOException e) {
+                // Worker に渡さずにエラーとし、要求は残しておく
+                synchronized (this) {
+                    connection.credits++;
+                    connection.running.remove(task);
+                    task.runners.remove(connection);
+                    finish(task, 0, e.getMessage() != null ? e.getMessage() : e.toString());
+                }
+                return;
+            }
+        }
+        try {
+            synchronized (connection.out) {
+                connection.out.writeByte(Protocol.UNIT);
+                unit.write(connection.out);
+                connection.out.flush();
+            }
+        } catch (IOException e) {
+            // 読み込み側のスレッドが切断として扱う
+            connection.close();
+        }
+    }
+
+    private synchronized void complete(Connection connection, long id, int score, String error) {
+        Task task = tasks.get((int) id);
+        connection.running.remove(task);
+        task.runners.remove(connection);
+        connection.completed++;
+        if (!task.done) finish(task, score, error);
+    }
+
+    // 呼び出し元でロックを取る
+    private void finish(Task task, int score, String error) {
+        task.done = true;
+        inFlight.remove(task.id);
+        Summary summary = summaries.get(task.problem);
+        if (error == null) {
+            summary.sum += score;
+            summary.min = Math.min(summary.min, score);
+            summary.max = Math.max(summary.max, score);
+            System.out.println(csvField(task.problem) + "," + csvField(task.name) + "," + score + ",");
+        } else {
+            summary.failed++;
+            System.out.println(csvField(task.problem) + "," + csvField(task.name) + ",," + csvField(error));
+        }
+        if (--remaining == 0) notifyAll();
+    }
+
+    private synchronized void lose(Connection connection) {
+        if (!connections.remove(connection)) return;
+        lost.add(connection.name + " done:" + connection.completed);
+        int requeued = 0;
+        for (Task task : connection.running) {
+            task.runners.remove(connection);
+            if (task.done || !task.runners.isEmpty()) continue;
+            inFlight.remove(task.id);
+            if (++task.attempts >= MAX_ATTEMPTS) {
+                finish(task, 0, "Worker が " + MAX_ATTEMPTS + " 回異常終了しました");
+            } else {
+                queue.addFirst(task);
+                requeued++;
+            }
+        }
+        connection.running.clear();
+        if (remaining > 0) {
+            System.err.println("worker lost:" + connection.name + " requeued:" + requeued);
+        }
+    }
+
+    private void serve(Connection connection) {
+        try {
+            connection.socket.setSoTimeout(workerTimeoutMillis);
+            if (connection.in.readByte() != Protocol.HELLO) throw new IOException("HELLO expected");
+            connection.name = connection.in.readUTF();
+            synchronized (this) {
+                connections.add(connection);
+            }
+            while (true) {
+                byte type = connection.in.readByte();
+                if (type == Protocol.REQUEST) {
+                    int count = connection.in.readInt();
+                    synchronized (this) {
+                        connection.credits += count;
+                    }
+                    dispatch();
+                } else if (type == Protocol.RESULT) {
+                    long id = connection.in.readLong();
+                    if (id < 0 || tasks.size() <= id) throw new IOException("unknown unit " + id);
+                    if (connection.in.readBoolean()) {
+                        complete(connection, id, connection.in.readInt(), null);
+                    } else {
+                        complete(connection, id, 0, connection.in.readUTF());
+                    }
+                } else if (type != Protocol.PING) {
+                    throw new IOException("unknown message " + type);
+                }
+            }
+        } catch (IOException e) {
+            // 切断・タイムアウト
+        } finally {
+            connection.close();
+            lose(connection);
+            dispatch();
+        }
+    }
+
+    void run(int port) throws Exception {
+        System.out.println("problem,name,score,error");
+        if (tasks.isEmpty()) return;
+        try (ServerSocket server = new ServerSocket(port)) {
+            System.err.println("listening on port " + server.getLocalPort());
+            Thread acceptor = new Thread(() -> {
+                while (true) {
+                    try {
+                        Socket socket = server.accept();
+                        socket.setTcpNoDelay(true);
+                        Connection connection = new Connection(socket);
+                        Thread reader = new Thread(() -> serve(connection));
+                        reader.setDaemon(true);
+                        reader.start();
+                    } catch (SocketException e) {
+                        return; // server closed
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+            synchronized (this) {
+                while (remaining > 0) {
+                    wait();
+                }
+            }
+        }
+        List<Connection> done;
+        synchronized (this) {
+            done = new ArrayList<>(connections);
+            connections.clear();
+        }
+        for (Connection connection : done) {
+            try {
+                synchronized (connection.out) {
+                    connection.out.writeByte(Protocol.DONE);
+                    connection.out.flush();
+                }
+            } catch (IOException e) {
+                // すでに切れている
+            }
+            connection.close();
+        }
+        System.out.flush();
+        for (Map.Entry<String, Summary> entry : summaries.entrySet()) {
+            Summary s = entry.getValue();
+            int ok = s.cases - s.failed;
+            System.err.print("problem:" + entry.getKey() + " cases:" + s.cases + " failed:" + s.failed);
+            if (ok > 0) {
+                System.err.printf(" sum:%d mean:%.3f min:%d max:%d", s.sum, (double) s.sum / ok, s.min, s.max);
+            }
+            System.err.println();
+        }
+        for (Connection connection : done) {
+            System.err.println("worker:" + connection.name + " done:" + connection.completed);
+        }
+        for (String worker : lost) {
+            System.err.println("worker:" + worker + " (lost)");
+        }
+    }
+
+    static String csvField(String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) return s;
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+
+    static void usage() {
+        System.err.println("usage: java Coordinator [-port port] [-judge problem input_dir output_dir]... [-seeds from..to -command \"command\"] [-worker-timeout ms]");
+        System.exit(1);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = 50123;
+        int workerTimeoutMillis = 60000;
+        List<String[]> judges = new ArrayList<>();
+        String seeds = null;
+        String command = null;
+        for (int i = 0; i < args.length; ++i) {
+            if (args[i].equals("-port")) {
+                port = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-judge") && i + 3 < args.length) {
+                judges.add(new String[]{args[i + 1], args[i + 2], args[i + 3]});
+                i += 3;
+            } else if (args[i].equals("-seeds")) {
+                seeds = args[++i];
+            } else if (args[i].equals("-command")) {
+                command = args[++i];
+            } else if (args[i].equals("-worker-timeout")) {
+                workerTimeoutMillis = Integer.parseInt(args[++i]);
+            } else {
+                System.err.println("unknown option:" + args[i]);
+                usage();
+            }
+        }
+        if ((seeds == null) != (command == null) || (judges.isEmpty() && seeds == null) || workerTimeoutMillis < 1) {
+            usage();
+        }
+        Coordinator coordinator = new Coordinator(workerTimeoutMillis);
+        for (String[] judge : judges) {
+            if (!Protocol.isJudgeProblem(judge[0])) {
+                System.err.println("unknown problem:" + judge[0]);
+                usage();
+            }
+            coordinator.addJudgeTasks(judge[0], Paths.get(judge[1]), Paths.get(judge[2]));
+        }
+        if (seeds != null) {
+            String[] range = seeds.split("\\.\\.");
+            if (range.length != 2) usage();
+            long from = Long.parseLong(range[0]);
+            long to = Long.parseLong(range[1]);
+            if (from > to) usage();
+            coordinator.addTesterTasks(from, to, command);
+        }
+        coordinator.run(port);
+    }
+}
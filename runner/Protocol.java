@@ -0,0 +1,85 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+// Coordinator と Worker の間のメッセージ。各メッセージは 1 バイトの種類と、DataOutputStream で書いた本体からなる。
+//
+// Worker -> Coordinator
+//   HELLO   名前 (UTF)
+//   REQUEST 件数 (int)           さらに何件の作業単位を受け取れるか
+//   RESULT  番号 (long), 成否 (boolean), 得点 (int) またはエラーメッセージ (UTF)
+//   PING                         作業中も一定間隔で送り、生きていることを知らせる
+// Coordinator -> Worker
+//   UNIT    作業単位 (Unit.write の形式)
+//   DONE                         すべての作業単位が終わった
+class Protocol {
+    static final byte HELLO = 'H';
+    static final byte REQUEST = 'R';
+    static final byte RESULT = 'S';
+    static final byte PING = 'P';
+    static final byte UNIT = 'U';
+    static final byte DONE = 'D';
+
+    static final String[] JUDGE_PROBLEMS = {"qual_A", "qual_B", "final_B"};
+    static final String TESTER_PROBLEM = "final_A";
+
+    static boolean isJudgeProblem(String problem) {
+        for (String p : JUDGE_PROBLEMS) {
+            if (p.equals(problem)) return true;
+        }
+        return false;
+    }
+
+    // 作業単位。qual_A, qual_B, final_B は入力ファイルと出力ファイルの内容を Judge.score で、
+    // final_A はシードと解答プログラムのコマンドを Tester.execute で採点する
+    static class Unit {
+        long id;
+        String problem;
+        String name;
+        byte[] input;
+        byte[] output;
+        long seed;
+        String command;
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeLong(id);
+            out.writeUTF(problem);
+            out.writeUTF(name);
+            if (problem.equals(TESTER_PROBLEM)) {
+                out.writeLong(seed);
+                out.writeUTF(command);
+            } else {
+                writeBytes(out, input);
+                writeBytes(out, output);
+            }
+        }
+
+        static Unit read(DataInputStream in) throws IOException {
+            Unit unit = new Unit();
+            unit.id = in.readLong();
+            unit.problem = in.readUTF();
+            unit.name = in.readUTF();
+            if (unit.problem.equals(TESTER_PROBLEM)) {
+                unit.seed = in.readLong();
+                unit.command = in.readUTF();
+            } else {
+                unit.input = readBytes(in);
+                unit.output = readBytes(in);
+            }
+            return unit;
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) throw new IOException("invalid length " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
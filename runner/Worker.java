@@ -0,0 +1,290 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Coordinator に接続し、受け取った作業単位を各問題のテスターで採点して結果を返す。
+// 同時に採点する数だけ作業単位を要求し、1 件返すたびに 1 件要求するので、速いワーカーほど多くの作業単位を受け取る
+public class Worker {
+    static final long PING_INTERVAL_MILLIS = 5000;
+
+    // 1 つの問題のテスター。各問題のテスターは同じ名前のクラス (TestCase, Judge など) を持つので、
+    // 問題ごとに別の URLClassLoader で読み込み、パッケージプライベートの入口をリフレクションで呼ぶ。
+    // static なフィールドもインスタンスごとに別になるので、final_A で別のコマンドを同時に使うときは別のインスタンスを作る
+    static class Problem {
+        // qual_A, qual_B, final_B: Judge.score(Path, Path) と、入力の生成に使う TestCase(long)
+        private Method judgeScore;
+        private Constructor<?> newTestCase;
+        // final_A: new Tester().execute(seed).score。解答プログラムのコマンドは Tester.command に設定する
+        private Constructor<?> newTester;
+        private Method execute;
+        private Field command;
+        private Field timeLimitMillis;
+        private Field resultScore;
+        private String currentCommand;
+
+        Problem(String problem, Path classes) throws Exception {
+            if (!Files.isDirectory(classes)) {
+                throw new IOException(problem + " のクラスのディレクトリがありません: " + classes);
+            }
+            URLClassLoader loader = new URLClassLoader(new URL[]{classes.toUri().toURL()}, ClassLoader.getPlatformClassLoader());
+            if (problem.equals(Protocol.TESTER_PROBLEM)) {
+                Class<?> tester = loader.loadClass("Tester");
+                newTester = tester.getDeclaredConstructor();
+                execute = tester.getDeclaredMethod("execute", long.class);
+                command = tester.getDeclaredField("command");
+                timeLimitMillis = tester.getDeclaredField("timeLimitMillis");
+                resultScore = loader.loadClass("Tester$GameResult").getDeclaredField("score");
+                newTester.setAccessible(true);
+                execute.setAccessible(true);
+                command.setAccessible(true);
+                timeLimitMillis.setAccessible(true);
+                resultScore.setAccessible(true);
+            } else {
+                judgeScore = loader.loadClass("Judge").getDeclaredMethod("score", Path.class, Path.class);
+                newTestCase = loader.loadClass("TestCase").getDeclaredConstructor(long.class);
+                judgeScore.setAccessible(true);
+                newTestCase.setAccessible(true);
+            }
+        }
+
+        // Generator -seed seed が出力するのと同じ入力 (qual_A, qual_B, final_B)
+        String generate(long seed) throws Exception {
+            try {
+                String input = newTestCase.newInstance(seed).toString();
+                return input.endsWith("\n") ? input : input + "\n";
+            } catch (InvocationTargetException e) {
+                throw unwrap(e);
+            }
+        }
+
+        // final_A の Tester の -time-limit と同じ
+        void setTimeLimit(long millis) throws IllegalAccessException {
+            timeLimitMillis.setLong(null, millis);
+        }
+
+        // qual_A, qual_B, final_B
+        int judge(Path input, Path output) throws Exception {
+            try {
+                return (int) judgeScore.invoke(null, input, output);
+            } catch (InvocationTargetException e) {
+                throw unwrap(e);
+            }
+        }
+
+        // final_A
+        int execute(String command, long seed) throws Exception {
+            // Coordinator は 1 つのコマンドしか送らず、Compare は解答ごとに別のインスタンスを使うので、変わるのは最初の 1 回だけ
+            synchronized (this) {
+                if (!Objects.equals(currentCommand, command)) {
+                    this.command.set(null, command);
+                    currentCommand = command;
+                }
+            }
+            try {
+                return resultScore.getInt(execute.invoke(newTester.newInstance(), seed));
+            } catch (InvocationTargetException e) {
+                throw unwrap(e);
+            }
+        }
+
+        int score(Protocol.Unit unit) throws Exception {
+            if (judgeScore == null) {
+                return execute(unit.command, unit.seed);
+            }
+            Path input = Files.createTempFile("runner-", ".in");
+            Path output = Files.createTempFile("runner-", ".out");
+            try {
+                Files.write(input, unit.input);
+                Files.write(output, unit.output);
+                return judge(input, output);
+            } finally {
+                Files.deleteIfExists(input);
+                Files.deleteIfExists(output);
+            }
+        }
+
+        private static Exception unwrap(InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            return cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+        }
+    }
+
+    private final Path classes;
+    private final Map<String, Problem> problems = new HashMap<>();
+    private final DataOutputStream out;
+    private volatile boolean done;
+
+    Worker(Path classes, DataOutputStream out) {
+        this.classes = classes;
+        this.out = out;
+    }
+
+    private synchronized Problem problem(String name) throws Exception {
+        Problem problem = problems.get(name);
+        if (problem == null) {
+            problem = new Problem(name, classes.resolve(name));
+            problems.put(name, problem);
+        }
+        return problem;
+    }
+
+    private void run(Protocol.Unit unit) {
+        boolean ok = true;
+        int score = 0;
+        String error = null;
+        try {
+            score = problem(unit.problem).score(unit);
+        } catch (Throwable e) {
+            // OutOfMemoryError や NoClassDefFoundError などもエラーの結果として返す。返さないと Coordinator がこの作業単位を待ち続ける
+            ok = false;
+            error = e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+        try {
+            synchronized (out) {
+                out.writeByte(Protocol.RESULT);
+                out.writeLong(unit.id);
+                out.writeBoolean(ok);
+                if (ok) {
+                    out.writeInt(score);
+                } else {
+                    out.writeUTF(error);
+                }
+                out.writeByte(Protocol.REQUEST);
+                out.writeInt(1);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // 終了後に残っていた重複の作業単位の結果は送れなくてよい
+            if (!done) e.printStackTrace();
+        }
+    }
+
+    private void ping() {
+        try {
+            synchronized (out) {
+                out.writeByte(Protocol.PING);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // 切断は読み込み側で検出する
+        }
+    }
+
+    // 実行中の作業単位を待たずに打ち切る。割り込みでは解答プログラムからの読み込みが戻らないので、
+    // final_A の解答プログラムを止めて読み込みを戻し、各ゲームの後始末 (Tester の finally) をさせる
+    private static void abandon(ExecutorService pool) throws InterruptedException {
+        pool.shutdownNow();
+        ProcessHandle.current().descendants().forEach(ProcessHandle::destroyForcibly);
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private static Thread daemon(Runnable r) {
+        Thread thread = new Thread(r);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    static void usage() {
+        System.err.println("usage: java Worker -connect host:port [-parallel P] [-classes dir] [-retry seconds]");
+        System.exit(1);
+    }
+
+    // Coordinator が起動するまで retrySeconds 秒まで接続を試みる
+    static Socket connect(String host, int port, int retrySeconds) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(retrySeconds);
+        while (true) {
+            try {
+                return new Socket(host, port);
+            } catch (ConnectException e) {
+                if (System.nanoTime() > deadline) throw e;
+                Thread.sleep(500);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String connect = null;
+        int parallel = Runtime.getRuntime().availableProcessors();
+        Path classes = Paths.get("build");
+        int retrySeconds = 30;
+        for (int i = 0; i < args.length; ++i) {
+            if (args[i].equals("-connect")) {
+                connect = args[++i];
+            } else if (args[i].equals("-parallel")) {
+                parallel = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-classes")) {
+                classes = Paths.get(args[++i]);
+            } else if (args[i].equals("-retry")) {
+                retrySeconds = Integer.parseInt(args[++i]);
+            } else {
+                System.err.println("unknown option:" + args[i]);
+                usage();
+            }
+        }
+        if (connect == null || connect.lastIndexOf(':') < 0 || parallel < 1) {
+            usage();
+        }
+        String host = connect.substring(0, connect.lastIndexOf(':'));
+        int port = Integer.parseInt(connect.substring(connect.lastIndexOf(':') + 1));
+
+        try (Socket socket = connect(host, port, retrySeconds)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            Worker worker = new Worker(classes, out);
+            synchronized (out) {
+                out.writeByte(Protocol.HELLO);
+                out.writeUTF(InetAddress.getLocalHost().getHostName() + "/" + ProcessHandle.current().pid());
+                out.writeByte(Protocol.REQUEST);
+                out.writeInt(parallel);
+                out.flush();
+            }
+            ScheduledExecutorService pinger = Executors.newSingleThreadScheduledExecutor(Worker::daemon);
+            pinger.scheduleAtFixedRate(worker::ping, PING_INTERVAL_MILLIS, PING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            // 接続が切れたときに実行中の作業単位が JVM の終了を妨げないよう、デーモンスレッドで実行する
+            ExecutorService pool = Executors.newFixedThreadPool(parallel, Worker::daemon);
+            int count = 0;
+            try {
+                while (true) {
+                    byte type = in.readByte();
+                    if (type == Protocol.DONE) break;
+                    if (type != Protocol.UNIT) throw new IOException("unknown message " + type);
+                    Protocol.Unit unit = Protocol.Unit.read(in);
+                    pool.submit(() -> worker.run(unit));
+                    count++;
+                }
+            } catch (IOException e) {
+                // EOF のほか、接続のリセットなども含む。実行中の作業単位の結果はもう送れない
+                System.err.println("Coordinator との接続が切れました: " + e);
+                abandon(pool);
+                System.exit(1);
+            }
+            worker.done = true;
+            pinger.shutdownNow();
+            // DONE の後に残っているのは重複して渡された作業単位だけで、Coordinator はもうその結果を使わない
+            abandon(pool);
+            System.err.println("units:" + count);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+#!/bin/sh
+# 各問題のテスターを build/<問題> に、Coordinator, Worker, Compare を build/runner にコンパイルする
+set -e
+cd "$(dirname "$0")"
+for problem in qual_A qual_B final_A final_B runner; do
+    rm -rf "build/$problem"
+    mkdir -p "build/$problem"
+done
+for problem in qual_A qual_B final_A final_B; do
+    javac -encoding UTF-8 -d "build/$problem" ../$problem/tester/*.java
+done
+javac -encoding UTF-8 -d build/runner *.java
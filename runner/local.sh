@@ -0,0 +1,14 @@
+#!/bin/sh
+# 1 台のマシンで Coordinator と WORKERS 個 (既定 2) の Worker を起動する。引数はそのまま Coordinator に渡す。
+# 例: WORKERS=4 PARALLEL=2 ./local.sh -judge qual_B inputs outputs
+set -e
+dir=$(dirname "$0")
+"$dir/build.sh"
+port=${PORT:-50123}
+java -cp "$dir/build/runner" Coordinator -port "$port" "$@" &
+coordinator=$!
+for i in $(seq "${WORKERS:-2}"); do
+    java -cp "$dir/build/runner" Worker -connect "localhost:$port" -classes "$dir/build" -parallel "${PARALLEL:-1}" &
+done
+wait $coordinator
+wait
@@ -0,0 +1,343 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 解答 (solver) ごとの各問題の得点から、日本橋ハーフマラソンの規則 (userscript/rcocon2019.user.js と同じ) で順位表を作る。
+// * 問題ごとの得点は各シードの得点の合計。提出のない問題は 0 点
+// * 問題ごとの順位は、その問題の得点がより高い解答の数 + 1 (同点は同順位で、次の順位は飛ぶ)
+// * 順位の積の小さい順、同じなら各問題の順位の最小値の小さい順に並べ、総合順位も同じ規則で付ける
+// 得点は add で 1 件ずつ受け取り、問題ごとの合計を降順に並べた配列を、変化した合計だけ差し替えて保つ。
+// 変化が多いときは配列を作り直して Arrays.parallelSort で並べ直す。
+class Standings {
+    // 得点のないシード
+    private static final int ABSENT = Integer.MIN_VALUE;
+
+    private static class Problem {
+        final String name;
+        final Map<String, Integer> seedIds = new HashMap<>();
+        // 解答ごと・シードごとの得点 (ABSENT ならまだない)
+        int[][] scores = new int[0][];
+        // 解答ごとの得点の合計
+        long[] totals = new long[0];
+        // 全解答の合計の符号を反転して昇順に並べたもの (合計の降順)。rebuild なら作り直す
+        long[] sorted = new long[0];
+        boolean rebuild = true;
+        // sorted に反映していない合計の変化 (変化前, 変化後)
+        long[] changes = new long[32];
+        int changeCount;
+
+        Problem(String name) {
+            this.name = name;
+        }
+    }
+
+    private final Map<String, Integer> solverIds = new HashMap<>();
+    private final List<String> solvers = new ArrayList<>();
+    private final Map<String, Integer> problemIds = new HashMap<>();
+    private final List<Problem> problems = new ArrayList<>();
+    private long updates;
+
+    // solver の problem の seed の得点を score にする。同じ組の得点がすでにあれば置き換える
+    void add(String solver, String problem, String seed, int score) {
+        if (score == ABSENT) throw new IllegalArgumentException("score out of range: " + score);
+        int s = solverId(solver);
+        Problem p = problems.get(problemId(problem));
+        Integer seedId = p.seedIds.get(seed);
+        if (seedId == null) {
+            seedId = p.seedIds.size();
+            p.seedIds.put(seed, seedId);
+        }
+        int[] row = p.scores[s];
+        if (row.length <= seedId) {
+            int length = Math.max(seedId + 1, row.length * 2);
+            row = Arrays.copyOf(row, length);
+            Arrays.fill(row, p.scores[s].length, length, ABSENT);
+            p.scores[s] = row;
+        }
+        long before = p.totals[s];
+        long after = before - (row[seedId] == ABSENT ? 0 : row[seedId]) + score;
+        row[seedId] = score;
+        p.totals[s] = after;
+        updates++;
+        if (before == after || p.rebuild) return;
+        if (p.changeCount * 2 == p.changes.length) p.changes = Arrays.copyOf(p.changes, p.changes.length * 2);
+        p.changes[2 * p.changeCount] = before;
+        p.changes[2 * p.changeCount + 1] = after;
+        p.changeCount++;
+    }
+
+    private int solverId(String solver) {
+        Integer id = solverIds.get(solver);
+        if (id != null) return id;
+        id = solvers.size();
+        solverIds.put(solver, id);
+        solvers.add(solver);
+        // 新しい解答はすべての問題で 0 点として順位に加わる
+        for (Problem p : problems) {
+            grow(p, solvers.size());
+            p.rebuild = true;
+        }
+        return id;
+    }
+
+    private int problemId(String problem) {
+        Integer id = problemIds.get(problem);
+        if (id != null) return id;
+        id = problems.size();
+        problemIds.put(problem, id);
+        Problem p = new Problem(problem);
+        grow(p, solvers.size());
+        problems.add(p);
+        return id;
+    }
+
+    private static void grow(Problem p, int solverCount) {
+        int old = p.totals.length;
+        if (old >= solverCount) return;
+        p.totals = Arrays.copyOf(p.totals, solverCount);
+        p.scores = Arrays.copyOf(p.scores, solverCount);
+        for (int s = old; s < solverCount; s++) {
+            p.scores[s] = new int[0];
+        }
+    }
+
+    long updates() {
+        return updates;
+    }
+
+    // 合計の変化を sorted に反映する。変化が少なければ 1 件ずつ差し替え、多ければ並べ直す
+    private static void refresh(Problem p) {
+        int n = p.totals.length;
+        if (!p.rebuild && p.changeCount <= Math.max(16, n >> 3)) {
+            for (int i = 0; i < p.changeCount; i++) {
+                replace(p.sorted, -p.changes[2 * i], -p.changes[2 * i + 1]);
+            }
+        } else {
+            long[] sorted = new long[n];
+            for (int s = 0; s < n; s++) {
+                sorted[s] = -p.totals[s];
+            }
+            Arrays.parallelSort(sorted);
+            p.sorted = sorted;
+            p.rebuild = false;
+        }
+        p.changeCount = 0;
+    }
+
+    // 昇順の配列から before を 1 つ除き、after を順序を保って入れる。間の要素だけをずらす
+    private static void replace(long[] a, long before, long after) {
+        int from = Arrays.binarySearch(a, before);
+        if (from < 0) throw new IllegalStateException("missing total " + before);
+        if (after > before) {
+            int to = lowerBound(a, from + 1, a.length, after);
+            System.arraycopy(a, from + 1, a, from, to - from - 1);
+            a[to - 1] = after;
+        } else {
+            int to = lowerBound(a, 0, from, after);
+            System.arraycopy(a, to, a, to + 1, from - to);
+            a[to] = after;
+        }
+    }
+
+    // a[from, to) で v 以上の最初の位置
+    private static int lowerBound(long[] a, int from, int to, long v) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (a[mid] < v) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    // ある時点の順位表
+    static class Result {
+        String[] solvers;
+        String[] problems;
+        // 総合順位の順に並べた解答の番号 (同順位は最初に現れた順)
+        int[] order;
+        // 解答ごとの総合順位・順位の積・各問題の順位の最小値
+        int[] rank;
+        long[] product;
+        int[] minRank;
+        // [問題][解答] の順位と得点の合計
+        int[][] problemRank;
+        long[][] problemTotal;
+    }
+
+    Result result() {
+        int n = solvers.size();
+        int m = problems.size();
+        Result r = new Result();
+        r.solvers = solvers.toArray(new String[0]);
+        r.problems = new String[m];
+        r.problemRank = new int[m][];
+        r.problemTotal = new long[m][];
+        r.product = new long[n];
+        r.minRank = new int[n];
+        Arrays.fill(r.product, 1);
+        Arrays.fill(r.minRank, Integer.MAX_VALUE);
+        for (int j = 0; j < m; j++) {
+            Problem p = problems.get(j);
+            refresh(p);
+            r.problems[j] = p.name;
+            r.problemTotal[j] = Arrays.copyOf(p.totals, n);
+            int[] ranks = new int[n];
+            for (int s = 0; s < n; s++) {
+                ranks[s] = lowerBound(p.sorted, 0, n, -p.totals[s]) + 1;
+                try {
+                    r.product[s] = Math.multiplyExact(r.product[s], ranks[s]);
+                } catch (ArithmeticException e) {
+                    throw new ArithmeticException("順位の積が long の範囲を超えました: " + solvers.get(s));
+                }
+                r.minRank[s] = Math.min(r.minRank[s], ranks[s]);
+            }
+            r.problemRank[j] = ranks;
+        }
+        if (m == 0) Arrays.fill(r.minRank, 0);
+
+        // 順位の積の順位 (n 以下) と最小の順位 (n 以下) を 1 つの long に詰めて並べ、総合順位を付ける
+        long[] products = r.product.clone();
+        Arrays.parallelSort(products);
+        long[] keys = new long[n];
+        for (int s = 0; s < n; s++) {
+            long productRank = lowerBound(products, 0, n, r.product[s]);
+            keys[s] = productRank * (n + 1) + r.minRank[s];
+        }
+        long[] sortedKeys = keys.clone();
+        Arrays.parallelSort(sortedKeys);
+        r.rank = new int[n];
+        long[] byRank = new long[n];
+        for (int s = 0; s < n; s++) {
+            r.rank[s] = lowerBound(sortedKeys, 0, n, keys[s]) + 1;
+            byRank[s] = (long) r.rank[s] * n + s;
+        }
+        Arrays.parallelSort(byRank);
+        r.order = new int[n];
+        for (int i = 0; i < n; i++) {
+            r.order[i] = (int) (byRank[i] % n);
+        }
+        return r;
+    }
+
+    // rank,solver,product,min_rank,問題名_rank,問題名_score,... の CSV。top が正なら総合順位の上位 top 行だけ
+    static void print(Result r, int top, PrintStream out) {
+        StringBuilder sb = new StringBuilder("rank,solver,product,min_rank");
+        for (String problem : r.problems) {
+            sb.append(',').append(csvField(problem + "_rank")).append(',').append(csvField(problem + "_score"));
+        }
+        out.println(sb);
+        int rows = top > 0 ? Math.min(top, r.order.length) : r.order.length;
+        for (int i = 0; i < rows; i++) {
+            int s = r.order[i];
+            sb.setLength(0);
+            sb.append(r.rank[s]).append(',').append(csvField(r.solvers[s])).append(',').append(r.product[s]).append(',').append(r.minRank[s]);
+            for (int j = 0; j < r.problems.length; j++) {
+                sb.append(',').append(r.problemRank[j][s]).append(',').append(r.problemTotal[j][s]);
+            }
+            out.println(sb);
+        }
+    }
+
+    static String csvField(String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) return s;
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+
+    // CSV の 1 行を、" で囲んだフィールド ("" は " 1 つ) を考慮して分ける
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (quoted) {
+                if (ch != '"') {
+                    field.append(ch);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(ch);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    static void usage() {
+        System.err.println("usage: java Standings [file...] [-every N] [-top K]");
+        System.exit(1);
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> files = new ArrayList<>();
+        long every = 0;
+        int top = 0;
+        for (int i = 0; i < args.length; ++i) {
+            if (args[i].equals("-every")) {
+                every = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-top")) {
+                top = Integer.parseInt(args[++i]);
+            } else if (args[i].startsWith("-")) {
+                System.err.println("unknown option:" + args[i]);
+                usage();
+            } else {
+                files.add(args[i]);
+            }
+        }
+        if (every < 0) {
+            usage();
+        }
+        Standings standings = new Standings();
+        PrintStream out = new PrintStream(System.out, false, "UTF-8");
+        if (files.isEmpty()) {
+            files.add("-");
+        }
+        long lines = 0;
+        for (String file : files) {
+            try (BufferedReader reader = file.equals("-")
+                    ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                    : Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines++;
+                    if (line.isEmpty() || line.startsWith("solver,")) continue;
+                    List<String> fields = splitCsv(line);
+                    if (fields.size() < 4) {
+                        throw new IOException(file + ":" + lines + ": solver,problem,seed,score の形式ではありません: " + line);
+                    }
+                    // 得点が空 (エラー) なら 0 点
+                    String score = fields.get(3).trim();
+                    standings.add(fields.get(0), fields.get(1), fields.get(2), score.isEmpty() ? 0 : Integer.parseInt(score));
+                    if (every > 0 && standings.updates() % every == 0) {
+                        print(standings.result(), top, out);
+                        out.println();
+                        out.flush();
+                    }
+                }
+            }
+        }
+        print(standings.result(), top, out);
+        out.flush();
+    }
+}